@@ -0,0 +1,78 @@
+package choco.lang;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A {@link Mutable} holding an unboxed {@code Bool}. Compiled code that knows the content type calls
+ * {@link #deref(BoolCell)} and {@link #set(BoolCell, boolean)} directly.
+ */
+public final class BoolCell extends Mutable<Boolean> {
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(BoolCell.class, "value", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private boolean value;
+
+    private BoolCell(boolean value, Ordering ordering) {
+        super(ordering);
+        this.value = value;
+    }
+
+    public static BoolCell of(boolean value, Ordering ordering) {
+        return new BoolCell(value, ordering);
+    }
+
+    public static boolean deref(BoolCell cell) {
+        return switch (cell.ordering) {
+            case PLAIN -> cell.value;
+            case OPAQUE -> (boolean) VALUE.getOpaque(cell);
+            case RELEASE -> (boolean) VALUE.getAcquire(cell);
+            case VOLATILE -> (boolean) VALUE.getVolatile(cell);
+        };
+    }
+
+    public static void set(BoolCell cell, boolean value) {
+        switch (cell.ordering) {
+            case PLAIN -> cell.value = value;
+            case OPAQUE -> VALUE.setOpaque(cell, value);
+            case RELEASE -> VALUE.setRelease(cell, value);
+            case VOLATILE -> VALUE.setVolatile(cell, value);
+        }
+    }
+
+    public static boolean compareAndSet(BoolCell cell, boolean expected, boolean replacement) {
+        return switch (cell.ordering) {
+            case PLAIN -> {
+                if (cell.value != expected) {
+                    yield false;
+                }
+                cell.value = replacement;
+                yield true;
+            }
+            case OPAQUE, VOLATILE -> VALUE.compareAndSet(cell, expected, replacement);
+            case RELEASE -> (boolean) VALUE.compareAndExchangeRelease(cell, expected, replacement) == expected;
+        };
+    }
+
+    @Override
+    Boolean load() {
+        return deref(this);
+    }
+
+    @Override
+    void store(Boolean object) {
+        set(this, object.booleanValue());
+    }
+
+    @Override
+    boolean exchange(Boolean expected, Boolean replacement) {
+        return compareAndSet(this, expected.booleanValue(), replacement.booleanValue());
+    }
+}
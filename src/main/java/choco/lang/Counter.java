@@ -0,0 +1,29 @@
+package choco.lang;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter for many threads to add to at once.
+ * <p>
+ * Unlike {@link IntCell#fetchAdd}, which makes every thread contend on the same field, additions are spread over
+ * the cells of a {@link LongAdder}, so they scale with the number of threads. Reading the total sums the cells,
+ * it is exact only when no addition runs concurrently.
+ */
+public final class Counter {
+    private final LongAdder adder = new LongAdder();
+
+    private Counter() {
+    }
+
+    public static Counter of() {
+        return new Counter();
+    }
+
+    public static void increment(Counter counter, int delta) {
+        counter.adder.add(delta);
+    }
+
+    public static int total(Counter counter) {
+        return counter.adder.intValue();
+    }
+}
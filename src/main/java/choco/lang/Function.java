@@ -1,5 +1,10 @@
 package choco.lang;
 
+/**
+ * A function value of more parameters than the fixed arity interfaces cover, arguments are passed in an array.
+ *
+ * @see Function0
+ */
 public interface Function {
     Object invoke(Object... objects);
 }
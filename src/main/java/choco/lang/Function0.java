@@ -0,0 +1,12 @@
+package choco.lang;
+
+/**
+ * A function value without parameters.
+ * <p>
+ * Function values of up to three parameters implement the interface of their arity, so calling them
+ * neither allocates an arguments array nor goes through varargs. Functions over {@code Int} and
+ * {@code Bool} may implement a primitive specialization such as {@link IntToIntFunction} instead.
+ */
+public interface Function0 {
+    Object invoke();
+}
@@ -0,0 +1,8 @@
+package choco.lang;
+
+/**
+ * A function value of one parameter.
+ */
+public interface Function1 {
+    Object invoke(Object a);
+}
@@ -0,0 +1,8 @@
+package choco.lang;
+
+/**
+ * A function value of two parameters.
+ */
+public interface Function2 {
+    Object invoke(Object a, Object b);
+}
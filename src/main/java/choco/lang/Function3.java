@@ -0,0 +1,8 @@
+package choco.lang;
+
+/**
+ * A function value of three parameters.
+ */
+public interface Function3 {
+    Object invoke(Object a, Object b, Object c);
+}
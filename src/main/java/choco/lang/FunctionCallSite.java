@@ -0,0 +1,85 @@
+package choco.lang;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+/**
+ * The call site of a call through a function value.
+ * <p>
+ * The site starts unlinked. Each receiver class it sees gets its own entry in a chain of guards
+ * that test the exact class and call {@code invoke} on a receiver of that class, so a site that
+ * only ever sees one lambda compiles down to a class check and a direct call the JIT can inline.
+ * Once more than {@link #MAX_DEPTH} classes were seen the site is megamorphic and falls back to a
+ * plain interface call.
+ */
+public final class FunctionCallSite extends MutableCallSite {
+    static final int MAX_DEPTH = 4;
+
+    private static final MethodHandle FALLBACK;
+    private static final MethodHandle IS_CLASS;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            FALLBACK = lookup.findVirtual(
+                    FunctionCallSite.class,
+                    "fallback",
+                    MethodType.methodType(Object.class, Object[].class)
+            );
+            IS_CLASS = lookup.findStatic(
+                    FunctionCallSite.class,
+                    "isClass",
+                    MethodType.methodType(boolean.class, Class.class, Object.class)
+            );
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Calls {@code invoke} on the function interface of the first parameter, whatever the receiver.
+     */
+    private final MethodHandle generic;
+    private int depth = 0;
+
+    private FunctionCallSite(MethodHandles.Lookup lookup, String name, MethodType type) throws ReflectiveOperationException {
+        super(type);
+        var receiver = type.parameterType(0);
+        this.generic = lookup.findVirtual(receiver, name, type.dropParameterTypes(0, 1)).asFixedArity();
+        setTarget(FALLBACK.bindTo(this).asCollector(Object[].class, type.parameterCount()).asType(type));
+    }
+
+    /**
+     * Links an {@code invokedynamic} whose first argument is the function value being called.
+     */
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type) throws ReflectiveOperationException {
+        return new FunctionCallSite(lookup, name, type);
+    }
+
+    private static boolean isClass(Class<?> expected, Object receiver) {
+        return receiver.getClass() == expected;
+    }
+
+    private Object fallback(Object[] arguments) throws Throwable {
+        var receiverClass = arguments[0].getClass();
+        // racing threads may both extend the chain, that only costs a redundant guard
+        if (depth < MAX_DEPTH) {
+            var target = generic
+                    .asType(generic.type().changeParameterType(0, receiverClass))
+                    .asType(type());
+            var test = MethodHandles.dropArguments(
+                    IS_CLASS.bindTo(receiverClass).asType(MethodType.methodType(boolean.class, type().parameterType(0))),
+                    1,
+                    type().dropParameterTypes(0, 1).parameterList()
+            );
+            setTarget(MethodHandles.guardWithTest(test, target, getTarget()));
+            depth++;
+        } else {
+            setTarget(generic.asType(type()));
+        }
+        return generic.invokeWithArguments(arguments);
+    }
+}
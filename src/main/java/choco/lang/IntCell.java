@@ -0,0 +1,93 @@
+package choco.lang;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A {@link Mutable} holding an unboxed {@code Int}. Compiled code that knows the content type calls
+ * {@link #deref(IntCell)} and {@link #set(IntCell, int)} directly.
+ */
+public final class IntCell extends Mutable<Integer> {
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(IntCell.class, "value", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private int value;
+
+    private IntCell(int value, Ordering ordering) {
+        super(ordering);
+        this.value = value;
+    }
+
+    public static IntCell of(int value, Ordering ordering) {
+        return new IntCell(value, ordering);
+    }
+
+    public static int deref(IntCell cell) {
+        return switch (cell.ordering) {
+            case PLAIN -> cell.value;
+            case OPAQUE -> (int) VALUE.getOpaque(cell);
+            case RELEASE -> (int) VALUE.getAcquire(cell);
+            case VOLATILE -> (int) VALUE.getVolatile(cell);
+        };
+    }
+
+    public static void set(IntCell cell, int value) {
+        switch (cell.ordering) {
+            case PLAIN -> cell.value = value;
+            case OPAQUE -> VALUE.setOpaque(cell, value);
+            case RELEASE -> VALUE.setRelease(cell, value);
+            case VOLATILE -> VALUE.setVolatile(cell, value);
+        }
+    }
+
+    public static boolean compareAndSet(IntCell cell, int expected, int replacement) {
+        return switch (cell.ordering) {
+            case PLAIN -> {
+                if (cell.value != expected) {
+                    yield false;
+                }
+                cell.value = replacement;
+                yield true;
+            }
+            case OPAQUE, VOLATILE -> VALUE.compareAndSet(cell, expected, replacement);
+            case RELEASE -> (int) VALUE.compareAndExchangeRelease(cell, expected, replacement) == expected;
+        };
+    }
+
+    /**
+     * Atomically adds {@code delta} and returns the previous content.
+     */
+    public static int fetchAdd(IntCell cell, int delta) {
+        return switch (cell.ordering) {
+            case PLAIN -> {
+                var previous = cell.value;
+                cell.value = previous + delta;
+                yield previous;
+            }
+            case OPAQUE, VOLATILE -> (int) VALUE.getAndAdd(cell, delta);
+            case RELEASE -> (int) VALUE.getAndAddRelease(cell, delta);
+        };
+    }
+
+    @Override
+    Integer load() {
+        return deref(this);
+    }
+
+    @Override
+    void store(Integer object) {
+        set(this, object.intValue());
+    }
+
+    @Override
+    boolean exchange(Integer expected, Integer replacement) {
+        return compareAndSet(this, expected.intValue(), replacement.intValue());
+    }
+}
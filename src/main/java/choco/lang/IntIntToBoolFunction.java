@@ -0,0 +1,23 @@
+package choco.lang;
+
+/**
+ * A {@link Function2} from two {@code Int}s to {@code Bool} that is called without boxing.
+ */
+public interface IntIntToBoolFunction extends Function2 {
+    boolean invoke(int a, int b);
+
+    @Override
+    default Object invoke(Object a, Object b) {
+        return invoke((int) (Integer) a, (int) (Integer) b);
+    }
+
+    /**
+     * Views a function created with an erased type as this specialization.
+     */
+    static IntIntToBoolFunction from(Function2 function) {
+        if (function instanceof IntIntToBoolFunction specialized) {
+            return specialized;
+        }
+        return (a, b) -> (Boolean) function.invoke(a, b);
+    }
+}
@@ -0,0 +1,23 @@
+package choco.lang;
+
+/**
+ * A {@link Function2} from two {@code Int}s to {@code Int} that is called without boxing.
+ */
+public interface IntIntToIntFunction extends Function2 {
+    int invoke(int a, int b);
+
+    @Override
+    default Object invoke(Object a, Object b) {
+        return invoke((int) (Integer) a, (int) (Integer) b);
+    }
+
+    /**
+     * Views a function created with an erased type as this specialization.
+     */
+    static IntIntToIntFunction from(Function2 function) {
+        if (function instanceof IntIntToIntFunction specialized) {
+            return specialized;
+        }
+        return (a, b) -> (Integer) function.invoke(a, b);
+    }
+}
@@ -0,0 +1,23 @@
+package choco.lang;
+
+/**
+ * A {@link Function1} from {@code Int} to {@code Bool} that is called without boxing.
+ */
+public interface IntToBoolFunction extends Function1 {
+    boolean invoke(int a);
+
+    @Override
+    default Object invoke(Object a) {
+        return invoke((int) (Integer) a);
+    }
+
+    /**
+     * Views a function created with an erased type as this specialization.
+     */
+    static IntToBoolFunction from(Function1 function) {
+        if (function instanceof IntToBoolFunction specialized) {
+            return specialized;
+        }
+        return (a) -> (Boolean) function.invoke(a);
+    }
+}
@@ -0,0 +1,23 @@
+package choco.lang;
+
+/**
+ * A {@link Function1} from {@code Int} to {@code Int} that is called without boxing.
+ */
+public interface IntToIntFunction extends Function1 {
+    int invoke(int a);
+
+    @Override
+    default Object invoke(Object a) {
+        return invoke((int) (Integer) a);
+    }
+
+    /**
+     * Views a function created with an erased type as this specialization.
+     */
+    static IntToIntFunction from(Function1 function) {
+        if (function instanceof IntToIntFunction specialized) {
+            return specialized;
+        }
+        return (a) -> (Integer) function.invoke(a);
+    }
+}
@@ -1,7 +1,5 @@
 package choco.lang;
 
-import java.util.concurrent.atomic.AtomicReference;
-
 /**
  * A generic container that wraps a mutable reference to an object.
  * <p>
@@ -9,33 +7,66 @@ import java.util.concurrent.atomic.AtomicReference;
  * particularly useful when working with functional-style programming
  * or closures where mutation is otherwise restricted.
  * <p>
- * The wrapped value is stored in an {@link AtomicReference},
- * allowing for safe concurrent updates and access.
+ * A cell is a single field accessed through a {@link java.lang.invoke.VarHandle} with the
+ * {@link Ordering} it was created with. Cells of {@code Int} and {@code Bool} are an {@link IntCell}
+ * or a {@link BoolCell}, which keep their value unboxed. {@link #of} picks those by the initial value,
+ * so code that only knows the cell as a {@code Mutable} and code that knows its content type agree on it.
  *
  * @param <O> the type of the object being wrapped
  */
-public final class Mutable<O> {
+public abstract sealed class Mutable<O> permits RefCell, IntCell, BoolCell {
+    final Ordering ordering;
 
-    private final AtomicReference<O> inner;
+    Mutable(Ordering ordering) {
+        this.ordering = ordering;
+    }
 
     public static <O> Mutable<O> of(O object) {
-        return new Mutable<>(object);
+        return of(object, Ordering.VOLATILE);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <O> Mutable<O> of(O object, Ordering ordering) {
+        if (object instanceof Integer i) {
+            return (Mutable<O>) IntCell.of(i.intValue(), ordering);
+        }
+        if (object instanceof Boolean b) {
+            return (Mutable<O>) BoolCell.of(b.booleanValue(), ordering);
+        }
+        return new RefCell<>(object, ordering);
     }
 
     public static <O> void set(Mutable<O> mutable, O object) {
-        mutable.inner.set(object);
+        mutable.store(object);
     }
 
     public static <O> O deref(Mutable<O> mutable) {
-        return mutable.inner.get();
+        return mutable.load();
     }
 
-    public Mutable(O object) {
-        inner = new AtomicReference<>(object);
+    /**
+     * Atomically replaces the content if it is {@code expected}. {@code Int} and {@code Bool} cells compare
+     * values, other cells compare references.
+     */
+    public static <O> boolean compareAndSet(Mutable<O> mutable, O expected, O replacement) {
+        return mutable.exchange(expected, replacement);
     }
 
+    /**
+     * Atomically adds {@code delta} to a cell of {@code Int} and returns the previous content.
+     */
+    public static int fetchAdd(Mutable<Integer> mutable, int delta) {
+        return IntCell.fetchAdd((IntCell) mutable, delta);
+    }
+
+    abstract O load();
+
+    abstract void store(O object);
+
+    abstract boolean exchange(O expected, O replacement);
+
     @Override
     public String toString() {
-        return inner.toString();
+        return String.valueOf(load());
     }
 }
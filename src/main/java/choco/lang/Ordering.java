@@ -0,0 +1,25 @@
+package choco.lang;
+
+/**
+ * The memory ordering every access to a cell uses, from the cheapest to the strongest.
+ *
+ * @see java.lang.invoke.VarHandle
+ */
+public enum Ordering {
+    /**
+     * Plain field accesses, for cells only one thread uses.
+     */
+    PLAIN,
+    /**
+     * Accesses are atomic and each cell is coherent, but nothing orders them against other memory.
+     */
+    OPAQUE,
+    /**
+     * Writes release and reads acquire, so whatever a thread did before a write is visible after a read of it.
+     */
+    RELEASE,
+    /**
+     * Sequentially consistent accesses, the default.
+     */
+    VOLATILE,
+}
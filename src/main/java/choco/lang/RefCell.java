@@ -0,0 +1,62 @@
+package choco.lang;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A {@link Mutable} holding a reference.
+ */
+public final class RefCell<O> extends Mutable<O> {
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(RefCell.class, "value", Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Object value;
+
+    RefCell(O object, Ordering ordering) {
+        super(ordering);
+        this.value = object;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    O load() {
+        return (O) switch (ordering) {
+            case PLAIN -> value;
+            case OPAQUE -> VALUE.getOpaque(this);
+            case RELEASE -> VALUE.getAcquire(this);
+            case VOLATILE -> VALUE.getVolatile(this);
+        };
+    }
+
+    @Override
+    void store(O object) {
+        switch (ordering) {
+            case PLAIN -> value = object;
+            case OPAQUE -> VALUE.setOpaque(this, object);
+            case RELEASE -> VALUE.setRelease(this, object);
+            case VOLATILE -> VALUE.setVolatile(this, object);
+        }
+    }
+
+    @Override
+    boolean exchange(O expected, O replacement) {
+        return switch (ordering) {
+            case PLAIN -> {
+                if (value != expected) {
+                    yield false;
+                }
+                value = replacement;
+                yield true;
+            }
+            case OPAQUE, VOLATILE -> VALUE.compareAndSet(this, expected, replacement);
+            case RELEASE -> VALUE.compareAndExchangeRelease(this, expected, replacement) == expected;
+        };
+    }
+}
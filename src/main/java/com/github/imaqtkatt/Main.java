@@ -2,6 +2,7 @@ package com.github.imaqtkatt;
 
 import com.github.imaqtkatt.lang.compiler.Compiler;
 import com.github.imaqtkatt.lang.lexer.Lexer;
+import com.github.imaqtkatt.lang.optimizer.Optimizer;
 import com.github.imaqtkatt.lang.parser.Parser;
 import com.github.imaqtkatt.lang.tree.Program;
 import com.github.imaqtkatt.lang.typed.Environment;
@@ -24,15 +25,17 @@ public class Main {
         var parser = new Parser(lexer);
         var program = parser.program();
         var programT = InferProgram.inferProgram(program);
-        var compiler = new Compiler(programT);
-        var bytes = compiler.compile();
-        var packageName = program.packageName();
+        var optimized = new Optimizer().optimize(programT);
+        var compiler = new Compiler(optimized);
+        var classes = compiler.compile();
 
-        var outputPath = "./%s/Main.class".formatted(packageName);
-        var output = new File(outputPath);
-        try (var outputStream = new FileOutputStream(output)) {
-            outputStream.write(bytes);
-            outputStream.flush();
+        for (var entry : classes.entrySet()) {
+            var outputPath = "./%s.class".formatted(entry.getKey());
+            var output = new File(outputPath);
+            try (var outputStream = new FileOutputStream(output)) {
+                outputStream.write(entry.getValue());
+                outputStream.flush();
+            }
         }
 
         var root = new File(".");
@@ -19,9 +19,15 @@ public final class BooleanHelpers {
     }
 
     static void unwrapBoolean(MethodVisitor methodVisitor) {
+        unwrapBoolean(methodVisitor, true);
+    }
+
+    static void unwrapBoolean(MethodVisitor methodVisitor, boolean checkCast) {
         final String booleanValue = "booleanValue";
         final String descriptor = "()Z";
-        methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.BOOL.javaType());
+        if (checkCast) {
+            methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.BOOL.javaType());
+        }
         methodVisitor.visitMethodInsn(
                 Opcodes.INVOKEVIRTUAL,
                 Type.BOOL.javaType(),
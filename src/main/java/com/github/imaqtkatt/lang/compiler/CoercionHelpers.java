@@ -0,0 +1,112 @@
+package com.github.imaqtkatt.lang.compiler;
+
+import com.github.imaqtkatt.lang.typed.Type;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import static com.github.imaqtkatt.lang.compiler.BooleanHelpers.unwrapBoolean;
+import static com.github.imaqtkatt.lang.compiler.BooleanHelpers.wrapBoolean;
+import static com.github.imaqtkatt.lang.compiler.IntegerHelpers.unwrapInteger;
+import static com.github.imaqtkatt.lang.compiler.IntegerHelpers.wrapInteger;
+
+public final class CoercionHelpers {
+    static final String OBJECT = "Ljava/lang/Object;";
+
+    /**
+     * Converts the value on top of the stack from the representation {@code from} to {@code to},
+     * boxing, unboxing or casting as needed.
+     */
+    static void coerce(MethodVisitor methodVisitor, String from, String to) {
+        if (from.equals(to)) {
+            return;
+        }
+        if (to.equals("V")) {
+            methodVisitor.visitInsn(Opcodes.POP);
+            return;
+        }
+        if (from.equals("V")) {
+            methodVisitor.visitInsn(Opcodes.ACONST_NULL);
+            from = OBJECT;
+        }
+
+        switch (from) {
+            case "I" -> {
+                wrapInteger(methodVisitor);
+                coerce(methodVisitor, Type.INT.javaDescriptor(), to);
+            }
+            case "Z" -> {
+                wrapBoolean(methodVisitor);
+                coerce(methodVisitor, Type.BOOL.javaDescriptor(), to);
+            }
+            default -> {
+                switch (to) {
+                    case "I" -> unwrapInteger(methodVisitor, !from.equals(Type.INT.javaDescriptor()));
+                    case "Z" -> unwrapBoolean(methodVisitor, !from.equals(Type.BOOL.javaDescriptor()));
+                    default -> {
+                        var erased = erasedInterface(to);
+                        if (erased != null) {
+                            // the value may have been created with an erased type, wrap it if needed
+                            coerce(methodVisitor, from, erased);
+                            methodVisitor.visitMethodInsn(
+                                    Opcodes.INVOKESTATIC,
+                                    internalName(to),
+                                    "from",
+                                    "(%s)%s".formatted(erased, to),
+                                    true
+                            );
+                        } else if (!to.equals(OBJECT)) {
+                            methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, internalName(to));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The fixed arity function interface a primitive specialized one extends, {@code null} for any other descriptor.
+     */
+    static String erasedInterface(String descriptor) {
+        for (var entry : Type.Fun.PRIMITIVE_INTERFACES.entrySet()) {
+            if (descriptor.equals("L%s;".formatted(entry.getValue()))) {
+                var arity = org.objectweb.asm.Type.getArgumentCount(entry.getKey());
+                return "Lchoco/lang/Function%d;".formatted(arity);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The wrapper of a primitive descriptor, other descriptors are returned as they are.
+     */
+    static String boxed(String descriptor) {
+        return switch (descriptor) {
+            case "I" -> Type.INT.javaDescriptor();
+            case "Z" -> Type.BOOL.javaDescriptor();
+            default -> descriptor;
+        };
+    }
+
+    static String internalName(String descriptor) {
+        return descriptor.substring(1, descriptor.length() - 1);
+    }
+
+    static boolean isPrimitive(String descriptor) {
+        return descriptor.equals("I") || descriptor.equals("Z");
+    }
+
+    static int loadOpcode(String descriptor) {
+        return isPrimitive(descriptor) ? Opcodes.ILOAD : Opcodes.ALOAD;
+    }
+
+    static int storeOpcode(String descriptor) {
+        return isPrimitive(descriptor) ? Opcodes.ISTORE : Opcodes.ASTORE;
+    }
+
+    static int returnOpcode(String descriptor) {
+        if (descriptor.equals("V")) {
+            return Opcodes.RETURN;
+        }
+        return isPrimitive(descriptor) ? Opcodes.IRETURN : Opcodes.ARETURN;
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.imaqtkatt.lang.compiler;
 
+import choco.lang.Ordering;
 import com.github.imaqtkatt.lang.parser.Scope;
+import com.github.imaqtkatt.lang.tree.Operation;
+import com.github.imaqtkatt.lang.typed.Scheme;
 import com.github.imaqtkatt.lang.typed.Type;
 import com.github.imaqtkatt.lang.typed.tree.Node;
 import com.github.imaqtkatt.lang.typed.tree.Program;
@@ -8,62 +11,240 @@ import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
 import org.objectweb.asm.*;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
 
-import static com.github.imaqtkatt.lang.compiler.BooleanHelpers.unwrapBoolean;
-import static com.github.imaqtkatt.lang.compiler.BooleanHelpers.wrapBoolean;
-import static com.github.imaqtkatt.lang.compiler.IntegerHelpers.unwrapInteger;
-import static com.github.imaqtkatt.lang.compiler.IntegerHelpers.wrapInteger;
+import static com.github.imaqtkatt.lang.compiler.CoercionHelpers.*;
 
 public final class Compiler {
     private final Program program;
-    private final String className;
+    private final CompilerOptions options;
+    /**
+     * The internal names of the generated classes, {@code <package>/Main} first.
+     */
+    private final List<String> classNames = new ArrayList<>();
+    /**
+     * The class each function and val is compiled into, by name.
+     */
+    private final Map<String, String> owners = new HashMap<>();
+    private final Map<String, Node.FunDefinition> functions = new LinkedHashMap<>();
+    private final Map<String, Node.ValDefinition> vals = new LinkedHashMap<>();
+    private final Specializations specializations;
+    private final Queue<LiftedLambda> lambdas = new ArrayDeque<>();
+    private final Set<String> references;
+    private final Set<TypedExpression> localCells;
+    /**
+     * Vals whose value is a literal, by name. Reads of them compile to the literal.
+     */
+    private final Map<String, TypedExpression> constants = new HashMap<>();
+    private int lambdaCount = 0;
 
-    static final String MUTABLE = "choco/lang/Mutable";
-    static final String MUTABLE_SET_DESCRIPTOR = "(Lchoco/lang/Mutable;Ljava/lang/Object;)V";
-    static final String MUTABLE_DEREF_DESCRIPTOR = "(Lchoco/lang/Mutable;)Ljava/lang/Object;";
-    static final String MUTABLE_OF_DESCRIPTOR = "(Ljava/lang/Object;)Lchoco/lang/Mutable;";
+    /**
+     * The class the code being compiled goes into, the lambdas in it are lifted into the same class.
+     */
+    private String className;
+
+    /**
+     * Type variables of the function being compiled that are fixed by the current specialization.
+     */
+    private Map<Integer, Type> substitution = Map.of();
+
+    static final String ORDERING = "choco/lang/Ordering";
+    static final String ORDERING_DESCRIPTOR = "Lchoco/lang/Ordering;";
+    static final String COUNTER = "choco/lang/Counter";
+    static final String COUNTER_DESCRIPTOR = "Lchoco/lang/Counter;";
+
+    static final String FUNCTION_INVOKE_DESCRIPTOR = "([Ljava/lang/Object;)Ljava/lang/Object;";
+
+    static final Handle LAMBDA_METAFACTORY = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/LambdaMetafactory",
+            "metafactory",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+                    + "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)"
+                    + "Ljava/lang/invoke/CallSite;",
+            false
+    );
+
+    static final Handle CONSTANT_INVOKE = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/ConstantBootstraps",
+            "invoke",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;"
+                    + "Ljava/lang/invoke/MethodHandle;[Ljava/lang/Object;)Ljava/lang/Object;",
+            false
+    );
+
+    static final Handle INTEGER_VALUE_OF = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/Integer",
+            "valueOf",
+            "(I)Ljava/lang/Integer;",
+            false
+    );
+
+    static final Handle FUNCTION_CALL_SITE = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "choco/lang/FunctionCallSite",
+            "bootstrap",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)"
+                    + "Ljava/lang/invoke/CallSite;",
+            false
+    );
 
     public Compiler(com.github.imaqtkatt.lang.typed.tree.Program program) {
+        this(program, CompilerOptions.DEFAULT);
+    }
+
+    public Compiler(com.github.imaqtkatt.lang.typed.tree.Program program, CompilerOptions options) {
         this.program = program;
-        this.className = program.packageName() + "/" + "Main";
+        this.options = options;
+        var main = program.packageName() + "/" + "Main";
+        classNames.add(main);
+        Partitions.of(program, options.classBudget()).forEach((name, partition) -> {
+            while (classNames.size() <= partition) {
+                classNames.add("%s$%d".formatted(main, classNames.size()));
+            }
+            owners.put(name, classNames.get(partition));
+        });
+        this.specializations = new Specializations(options.maxSpecializations());
+        this.references = FunctionReferences.of(program);
+        this.localCells = LocalCells.of(program);
+        for (var node : program.definitions()) {
+            if (node instanceof Node.FunDefinition fun) {
+                functions.put(fun.name(), fun);
+            }
+            if (node instanceof Node.ValDefinition val) {
+                vals.put(val.name(), val);
+            }
+            if (node instanceof Node.ValDefinition val
+                    && (val.value() instanceof TypedExpression.Int || val.value() instanceof TypedExpression.Bool)) {
+                constants.put(val.name(), val.value());
+            }
+        }
     }
 
-    public byte[] compile() throws IOException {
-        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    /**
+     * The representation of a value of the given type in the current codegen mode.
+     */
+    private String descriptor(Type type) {
+        return descriptor(type, substitution);
+    }
 
-        writer.visit(
-                Opcodes.V1_8,
-                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
-                className,
-                null,
-                "java/lang/Object",
-                null
-        );
-        writer.visitSource(className + ".java", null);
+    private String descriptor(Type type, Map<Integer, Type> substitution) {
+        var resolved = substitution.isEmpty() ? type : Scheme.replace(substitution, type);
+        return options.unboxed() ? resolved.primitiveDescriptor() : resolved.javaDescriptor();
+    }
 
-        compileDefaultConstructor(writer);
+    private String signature(Type type) {
+        var resolved = substitution.isEmpty() ? type : Scheme.replace(substitution, type);
+        return options.unboxed() ? resolved.primitiveSignature() : resolved.signature();
+    }
 
-        compileVals(writer);
+    /**
+     * The descriptor of a static method implementing a function of the given type.
+     */
+    private String methodDescriptor(Type.Fun type, Map<Integer, Type> substitution) {
+        var resolved = (Type.Fun) Scheme.replace(substitution, type);
+        return options.unboxed() ? resolved.primitiveMethodDescriptor() : resolved.methodDescriptor();
+    }
 
-        compileProgram(writer);
+    private String methodSignature(Type.Fun type) {
+        var resolved = (Type.Fun) Scheme.replace(substitution, type);
+        return options.unboxed() ? resolved.primitiveMethodSignature() : resolved.methodSignature();
+    }
 
-        return writer.toByteArray();
+    /**
+     * Compiles the program into its classes, by internal name, {@code <package>/Main} first. The
+     * definitions are spread across classes by {@link Partitions}, each class initializes the vals
+     * it holds in its own {@code <clinit>}.
+     */
+    public Map<String, byte[]> compile() throws IOException {
+        var writers = new LinkedHashMap<String, ClassWriter>();
+        var visitors = new HashMap<String, ClassVisitor>();
+        for (var name : classNames) {
+            ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+
+            writer.visit(
+                    // CONSTANT_Dynamic needs a Java 11 class file
+                    Opcodes.V11,
+                    Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                    name,
+                    null,
+                    "java/lang/Object",
+                    null
+            );
+            writer.visitSource(name + ".java", null);
+
+            ClassVisitor visitor = new UniqueMembers(name, options.peephole() ? new Peephole(writer) : writer);
+
+            compileDefaultConstructor(visitor);
+
+            writers.put(name, writer);
+            visitors.put(name, visitor);
+        }
+
+        for (var name : classNames) {
+            className = name;
+            compileVals(visitors.get(name));
+        }
+
+        compileProgram(visitors);
+
+        var classes = new LinkedHashMap<String, byte[]>();
+        for (var name : classNames) {
+            visitors.get(name).visitEnd();
+            classes.put(name, writers.get(name).toByteArray());
+        }
+        return classes;
     }
 
-    private void compileProgram(ClassWriter writer) {
+    private void compileProgram(Map<String, ClassVisitor> writers) {
         for (var node : program.definitions()) {
             if (node instanceof Node.FunDefinition fun) {
-                compileFun(writer, fun);
+                className = owners.get(fun.name());
+                compileFun(writers.get(className), fun, fun.name(), Opcodes.ACC_STATIC | Opcodes.ACC_PUBLIC);
             }
             if (node instanceof Node.ValDefinition val) {
-                compileVal2(writer, val);
+                className = owners.get(val.name());
+                compileVal2(writers.get(className), val);
+            }
+        }
+
+        // compiling a specialization or a lambda body may discover further ones
+        while (true) {
+            var specialization = specializations.poll();
+            if (specialization != null) {
+                className = owners.get(specialization.fun().name());
+                substitution = specialization.substitution();
+                compileFun(writers.get(className), specialization.fun(), specialization.name(), Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC);
+                substitution = Map.of();
+                continue;
+            }
+            var lambda = lambdas.poll();
+            if (lambda != null) {
+                className = lambda.owner();
+                substitution = lambda.substitution();
+                compileLiftedLambda(writers.get(className), lambda);
+                substitution = Map.of();
+                continue;
             }
+            break;
         }
     }
 
-    private void compileVals(ClassWriter writer) {
+    /**
+     * Emits the {@code <clinit>} of the current class, initializing the function references and vals it holds.
+     */
+    private void compileVals(ClassVisitor writer) {
         var methodVisitor = writer.visitMethod(
                 Opcodes.ACC_STATIC,
                 "<clinit>",
@@ -71,8 +252,14 @@ public final class Compiler {
                 null,
                 null
         );
+        // vals may use them, so references are initialized first
+        for (var name : references) {
+            if (owners.get(name).equals(className)) {
+                compileReference(writer, methodVisitor, functions.get(name));
+            }
+        }
         for (var node : program.definitions()) {
-            if (node instanceof Node.ValDefinition val) {
+            if (node instanceof Node.ValDefinition val && owners.get(val.name()).equals(className)) {
                 compileVal(methodVisitor, val);
             }
         }
@@ -81,7 +268,7 @@ public final class Compiler {
         methodVisitor.visitEnd();
     }
 
-    private static void compileDefaultConstructor(ClassWriter writer) {
+    private static void compileDefaultConstructor(ClassVisitor writer) {
         var methodVisitor = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 "<init>",
@@ -102,23 +289,71 @@ public final class Compiler {
         methodVisitor.visitEnd();
     }
 
+    private static String referenceField(String function) {
+        return function + "$ref";
+    }
+
+    /**
+     * Declares the field holding the function value of a top-level function and initializes it, wrapping
+     * the constant method handle of the function through {@code LambdaMetafactory}. References to the
+     * function by name then only read the field, also from the other classes of the program.
+     */
+    private void compileReference(ClassVisitor writer, MethodVisitor methodVisitor, Node.FunDefinition fun) {
+        var type = fun.type();
+        var valueDescriptor = descriptor(type);
+        writer.visitField(
+                Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC,
+                referenceField(fun.name()),
+                valueDescriptor,
+                null,
+                null
+        );
+
+        if (descriptor(type.ret()).equals("V") || type.params().size() > Type.Fun.MAX_ARITY) {
+            // LambdaMetafactory can neither make up the result of a void method nor spread an arguments
+            // array, so go through a lambda calling the function
+            var arguments = new ArrayList<TypedExpression>();
+            for (int i = 0; i < fun.params().size(); i++) {
+                arguments.add(new TypedExpression.Variable(type.params().get(i), fun.params().get(i), Scope.DeclarationType.Var));
+            }
+            var callee = new TypedExpression.Variable(type, fun.name(), Scope.DeclarationType.Fun);
+            var body = new TypedExpression.Call(type.ret(), callee, arguments);
+            compileLambda(methodVisitor, Map.of(), new TypedExpression.Lambda(type, fun.params(), body));
+        } else {
+            var invoke = invokeDescriptor(type);
+            methodVisitor.visitInvokeDynamicInsn(
+                    "invoke",
+                    "()" + valueDescriptor,
+                    LAMBDA_METAFACTORY,
+                    org.objectweb.asm.Type.getMethodType(invoke),
+                    new Handle(Opcodes.H_INVOKESTATIC, owners.get(fun.name()), fun.name(), methodDescriptor(type, Map.of()), false),
+                    org.objectweb.asm.Type.getMethodType(instantiatedDescriptor(type, invoke))
+            );
+        }
+
+        methodVisitor.visitFieldInsn(Opcodes.PUTSTATIC, owners.get(fun.name()), referenceField(fun.name()), valueDescriptor);
+    }
+
     private void compileVal(MethodVisitor methodVisitor, Node.ValDefinition val) {
+        if (constantValue(val) != null || isLazy(val.name())) {
+            // the ConstantValue attribute already initialized it, or it is computed on first read
+            return;
+        }
         compileExpression(methodVisitor, Map.of(), val.value());
         methodVisitor.visitFieldInsn(
                 Opcodes.PUTSTATIC,
-                className,
+                owners.get(val.name()),
                 val.name(),
-                val.type().javaDescriptor()
+                descriptor(val.type())
         );
     }
 
-    private void compileFun(ClassWriter writer, Node.FunDefinition fun) {
-        var descriptor = fun.type().javaDescriptor();
+    private void compileFun(ClassVisitor writer, Node.FunDefinition fun, String name, int access) {
         var methodVisitor = writer.visitMethod(
-                Opcodes.ACC_STATIC | Opcodes.ACC_PUBLIC,
-                fun.name(),
-                !fun.name().equals("lambda") ? descriptor : "()Lchoco/lang/Function;",
-                !fun.name().equals("lambda") ? fun.type().signature() : null,
+                access,
+                name,
+                methodDescriptor(fun.type(), substitution),
+                methodSignature(fun.type()),
                 null
         );
         var body = fun.body();
@@ -130,21 +365,17 @@ public final class Compiler {
             var label = new Label();
             methodVisitor.visitLocalVariable(
                     param,
-                    paramType.javaDescriptor(),
-                    paramType.signature(),
+                    descriptor(paramType),
+                    signature(paramType),
                     label,
                     label,
                     vars.get(param)
             );
         }
 
-        compileExpression(methodVisitor, vars, body);
-        var retDescriptor = fun.body().type().javaDescriptor();
-        if (retDescriptor.equals(Type.VOID.javaDescriptor())) {
-            methodVisitor.visitInsn(Opcodes.RETURN);
-        } else {
-            methodVisitor.visitInsn(Opcodes.ARETURN);
-        }
+        var start = new Label();
+        methodVisitor.visitLabel(start);
+        compileTail(methodVisitor, vars, body, new TailContext(fun, name, start));
         methodVisitor.visitFrame(
                 Opcodes.F_SAME,
                 0,
@@ -156,111 +387,246 @@ public final class Compiler {
         methodVisitor.visitEnd();
     }
 
+    /**
+     * The function whose body is being compiled, {@code start} marks the first instruction of its method.
+     */
+    private record TailContext(Node.FunDefinition fun, String method, Label start) {
+    }
+
+    /**
+     * Compiles an expression in tail position and returns its value. A call back into the same method
+     * is compiled as stores into the parameter slots and a jump to the start, so self recursion runs
+     * in constant stack.
+     */
+    private void compileTail(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression e, TailContext context) {
+        switch (e) {
+            case TypedExpression.If ifExpression -> {
+                var otherwiseLabel = new Label();
+                compileJump(methodVisitor, vars, ifExpression.condition(), false, otherwiseLabel);
+                compileTail(methodVisitor, vars, ifExpression.then(), context);
+                methodVisitor.visitLabel(otherwiseLabel);
+                compileTail(methodVisitor, vars, ifExpression.otherwise(), context);
+            }
+            case TypedExpression.Match match -> {
+                var otherwiseLabel = new Label();
+                var labels = compileSwitch(methodVisitor, vars, match, otherwiseLabel);
+                for (int i = 0; i < labels.size(); i++) {
+                    methodVisitor.visitLabel(labels.get(i));
+                    compileTail(methodVisitor, vars, match.cases().get(i).body(), context);
+                }
+                methodVisitor.visitLabel(otherwiseLabel);
+                compileTail(methodVisitor, vars, match.otherwise(), context);
+            }
+            case TypedExpression.Let let -> compileTail(methodVisitor, vars, compileChain(methodVisitor, vars, let), context);
+            case TypedExpression.Seq seq -> compileTail(methodVisitor, vars, compileChain(methodVisitor, vars, seq), context);
+            case TypedExpression.Call call when callTarget(call)
+                    .filter((target) -> target.method().equals(context.method()))
+                    .isPresent() -> {
+                var params = context.fun().params();
+                var paramsTypes = context.fun().paramsTypes();
+                // evaluate every argument before overwriting any parameter they may read
+                for (int i = 0; i < params.size(); i++) {
+                    compileExpression(methodVisitor, vars, call.arguments().get(i), descriptor(paramsTypes.get(i)));
+                }
+                for (int i = params.size() - 1; i >= 0; i--) {
+                    var store = storeOpcode(descriptor(paramsTypes.get(i)));
+                    methodVisitor.visitVarInsn(store, vars.get(params.get(i)));
+                }
+                methodVisitor.visitJumpInsn(Opcodes.GOTO, context.start());
+            }
+            default -> {
+                var ret = descriptor(context.fun().type().ret());
+                compileExpression(methodVisitor, vars, e, ret);
+                methodVisitor.visitInsn(returnOpcode(ret));
+            }
+        }
+    }
+
+    /**
+     * The method a call to a top-level function links to, with the substitution its types are compiled under.
+     */
+    private record CallTarget(Node.FunDefinition fun, String method, Map<Integer, Type> substitution) {
+    }
+
+    private Optional<CallTarget> callTarget(TypedExpression.Call call) {
+        if (call.callee() instanceof TypedExpression.Variable(
+                Type type, String name, Scope.DeclarationType decType
+        ) && decType == Scope.DeclarationType.Fun) {
+            var fun = functions.get(name);
+            var specialization = specializations.request(fun, type, substitution);
+            if (specialization.isPresent()) {
+                return Optional.of(new CallTarget(fun, specialization.get().name(), specialization.get().substitution()));
+            }
+            return Optional.of(new CallTarget(fun, name, Map.of()));
+        }
+        return Optional.empty();
+    }
+
     private void compileExpression(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression e) {
         switch (e) {
             case TypedExpression.Binary binary -> {
                 switch (binary.op()) {
                     case Add, Sub, Mul, Div -> compileArithmetic(methodVisitor, vars, binary);
                     case Set -> compileSet(methodVisitor, vars, binary);
-                    case LT, GT, LE, GE, Eql -> compileComparison(methodVisitor, vars, binary);
-                    case And, Or -> compileLogical(methodVisitor, vars, binary);
+                    case LT, GT, LE, GE, Eql, And, Or -> compileTest(methodVisitor, vars, binary);
                 }
             }
-            case TypedExpression.Bool(Type ignored, Boolean b) -> {
-                methodVisitor.visitInsn(b ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
-                wrapBoolean(methodVisitor);
-            }
+            case TypedExpression.Bool(Type type, Boolean ignored) -> compileLiteral(methodVisitor, e, descriptor(type));
             case TypedExpression.Call call -> {
-                for (var arg : call.arguments()) {
-                    compileExpression(methodVisitor, vars, arg);
-                }
-                if (call.callee() instanceof TypedExpression.Variable(
-                        Type type, String name, Scope.DeclarationType decType
-                ) && decType == Scope.DeclarationType.Fun) {
-                    methodVisitor.visitMethodInsn(
-                            Opcodes.INVOKESTATIC,
-                            className,
-                            name,
-                            type.javaDescriptor(),
-                            false
-                    );
+                var target = callTarget(call);
+                if (target.isPresent()) {
+                    compileDirectCall(methodVisitor, vars, call, target.get());
                 } else {
-                    throw new IllegalStateException();
+                    compileValueCall(methodVisitor, vars, call);
                 }
             }
+            case TypedExpression.Deref(Type type, TypedExpression mutable) when localCells.contains(mutable) -> {
+                var cell = cellDescriptor(mutable.type());
+                methodVisitor.visitVarInsn(loadOpcode(cell), vars.get(((TypedExpression.Variable) mutable).name()));
+                coerce(methodVisitor, cell, descriptor(type));
+            }
             case TypedExpression.Deref(Type type, TypedExpression mutable) -> {
-                compileExpression(methodVisitor, vars, mutable);
-                methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, MUTABLE);
+                var cell = descriptor(mutable.type());
+                var content = contentDescriptor(cell);
+                compileExpression(methodVisitor, vars, mutable, cell);
                 methodVisitor.visitMethodInsn(
                         Opcodes.INVOKESTATIC,
-                        MUTABLE,
+                        internalName(cell),
                         "deref",
-                        MUTABLE_DEREF_DESCRIPTOR,
+                        "(%s)%s".formatted(cell, content),
                         false
                 );
-                methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, type.javaType());
+                coerce(methodVisitor, content, descriptor(type));
             }
-            case TypedExpression.Int(Type ignored, Integer i) -> {
-                methodVisitor.visitLdcInsn(i);
-                wrapInteger(methodVisitor);
-            }
-            case TypedExpression.Let let -> {
-                vars.computeIfAbsent(let.bind(), (_) -> vars.size());
-                var label = new Label();
-                var value = let.value();
-                methodVisitor.visitLocalVariable(
-                        let.bind(),
-                        value.type().javaDescriptor(),
-                        value.type().signature(),
-                        label,
-                        label,
-                        vars.get(let.bind())
+            case TypedExpression.Int(Type type, Integer ignored) -> compileLiteral(methodVisitor, e, descriptor(type));
+            case TypedExpression.Let let -> compileExpression(methodVisitor, vars, compileChain(methodVisitor, vars, let));
+            case TypedExpression.Mutable(Type type, TypedExpression base, Ordering ordering) -> {
+                var cell = descriptor(type);
+                var content = contentDescriptor(cell);
+                compileExpression(methodVisitor, vars, base, content);
+                methodVisitor.visitFieldInsn(Opcodes.GETSTATIC, ORDERING, ordering.name(), ORDERING_DESCRIPTOR);
+                methodVisitor.visitMethodInsn(
+                        Opcodes.INVOKESTATIC,
+                        internalName(cell),
+                        "of",
+                        "(%s%s)%s".formatted(content, ORDERING_DESCRIPTOR, cell),
+                        false
                 );
-                compileExpression(methodVisitor, vars, let.value());
-                methodVisitor.visitVarInsn(Opcodes.ASTORE, vars.get(let.bind()));
-                compileExpression(methodVisitor, vars, let.body());
             }
-            case TypedExpression.Mutable(Type ignored, TypedExpression base) -> {
-                compileExpression(methodVisitor, vars, base);
+            case TypedExpression.FetchAdd(Type type, TypedExpression mutable, TypedExpression delta) -> {
+                var cell = descriptor(mutable.type());
+                compileExpression(methodVisitor, vars, mutable, cell);
+                compileExpression(methodVisitor, vars, delta, "I");
                 methodVisitor.visitMethodInsn(
                         Opcodes.INVOKESTATIC,
-                        MUTABLE,
-                        "of",
-                        MUTABLE_OF_DESCRIPTOR,
+                        internalName(cell),
+                        "fetchAdd",
+                        "(%sI)I".formatted(cell),
                         false
                 );
+                coerce(methodVisitor, "I", descriptor(type));
             }
-            case TypedExpression.Seq seq -> {
-                compileExpression(methodVisitor, vars, seq.left());
-                compileExpression(methodVisitor, vars, seq.right());
+            case TypedExpression.CompareAndSet compareAndSet -> {
+                var cell = descriptor(compareAndSet.mutable().type());
+                var content = contentDescriptor(cell);
+                compileExpression(methodVisitor, vars, compareAndSet.mutable(), cell);
+                compileExpression(methodVisitor, vars, compareAndSet.expected(), content);
+                compileExpression(methodVisitor, vars, compareAndSet.replacement(), content);
+                methodVisitor.visitMethodInsn(
+                        Opcodes.INVOKESTATIC,
+                        internalName(cell),
+                        "compareAndSet",
+                        "(%s%s%s)Z".formatted(cell, content, content),
+                        false
+                );
+                coerce(methodVisitor, "Z", descriptor(compareAndSet.type()));
+            }
+            case TypedExpression.Counter ignored -> methodVisitor.visitMethodInsn(
+                    Opcodes.INVOKESTATIC,
+                    COUNTER,
+                    "of",
+                    "()" + COUNTER_DESCRIPTOR,
+                    false
+            );
+            case TypedExpression.Increment(Type ignored, TypedExpression counter, TypedExpression delta) -> {
+                compileExpression(methodVisitor, vars, counter, COUNTER_DESCRIPTOR);
+                compileExpression(methodVisitor, vars, delta, "I");
+                methodVisitor.visitMethodInsn(
+                        Opcodes.INVOKESTATIC,
+                        COUNTER,
+                        "increment",
+                        "(%sI)V".formatted(COUNTER_DESCRIPTOR),
+                        false
+                );
+            }
+            case TypedExpression.Sum(Type type, TypedExpression counter) -> {
+                compileExpression(methodVisitor, vars, counter, COUNTER_DESCRIPTOR);
+                methodVisitor.visitMethodInsn(
+                        Opcodes.INVOKESTATIC,
+                        COUNTER,
+                        "total",
+                        "(%s)I".formatted(COUNTER_DESCRIPTOR),
+                        false
+                );
+                coerce(methodVisitor, "I", descriptor(type));
+            }
+            case TypedExpression.Seq seq -> compileExpression(methodVisitor, vars, compileChain(methodVisitor, vars, seq));
+            case TypedExpression.Variable variable when variable.decType() == Scope.DeclarationType.Val
+                    && constants.containsKey(variable.name()) -> {
+                var constant = constants.get(variable.name());
+                compileExpression(methodVisitor, vars, constant);
+                coerce(methodVisitor, descriptor(constant.type()), descriptor(variable.type()));
+            }
+            case TypedExpression.Variable variable when variable.decType() == Scope.DeclarationType.Val
+                    && isLazy(variable.name()) -> {
+                var declared = vals.get(variable.name()).type();
+                var owner = owners.get(variable.name());
+                if (owner.equals(className)) {
+                    methodVisitor.visitLdcInsn(lazyVal(variable.name(), declared));
+                } else {
+                    // the constant resolves once per class, so other classes go through the accessor
+                    methodVisitor.visitMethodInsn(
+                            Opcodes.INVOKESTATIC,
+                            owner,
+                            variable.name(),
+                            "()" + descriptor(declared),
+                            false
+                    );
+                }
+                coerce(methodVisitor, descriptor(declared), descriptor(variable.type()));
             }
             case TypedExpression.Variable variable -> {
                 switch (variable.decType()) {
                     case Val -> methodVisitor.visitFieldInsn(
                             Opcodes.GETSTATIC,
-                            className,
+                            owners.get(variable.name()),
                             variable.name(),
-                            variable.type().javaDescriptor()
+                            descriptor(variable.type())
                     );
 
-                    case Fun -> throw new UnsupportedOperationException("Can't use function as reference.");
+                    case Fun -> {
+                        var declared = descriptor(functions.get(variable.name()).type(), Map.of());
+                        methodVisitor.visitFieldInsn(
+                                Opcodes.GETSTATIC,
+                                owners.get(variable.name()),
+                                referenceField(variable.name()),
+                                declared
+                        );
+                        coerce(methodVisitor, declared, descriptor(variable.type()));
+                    }
 
                     case Var -> {
                         var index = vars.get(variable.name());
-                        methodVisitor.visitVarInsn(Opcodes.ALOAD, index);
+                        methodVisitor.visitVarInsn(loadOpcode(descriptor(variable.type())), index);
                     }
                 }
             }
             case TypedExpression.If ifExpression -> {
-                compileExpression(methodVisitor, vars, ifExpression.condition());
-                unwrapBoolean(methodVisitor);
-
                 var thenLabel = new Label();
                 var otherwiseLabel = new Label();
                 var end = new Label();
 
-                // if zero
-                methodVisitor.visitJumpInsn(Opcodes.IFEQ, otherwiseLabel);
+                compileJump(methodVisitor, vars, ifExpression.condition(), false, otherwiseLabel);
 
                 methodVisitor.visitLabel(thenLabel);
                 compileExpression(methodVisitor, vars, ifExpression.then());
@@ -272,25 +638,416 @@ public final class Compiler {
 
                 methodVisitor.visitLabel(end);
             }
-            case TypedExpression.Lambda _ -> throw new UnsupportedOperationException("Can't compile lambda");
+            case TypedExpression.Match match -> {
+                var otherwiseLabel = new Label();
+                var end = new Label();
+
+                var labels = compileSwitch(methodVisitor, vars, match, otherwiseLabel);
+                for (int i = 0; i < labels.size(); i++) {
+                    methodVisitor.visitLabel(labels.get(i));
+                    compileExpression(methodVisitor, vars, match.cases().get(i).body());
+                    methodVisitor.visitJumpInsn(Opcodes.GOTO, end);
+                }
+
+                methodVisitor.visitLabel(otherwiseLabel);
+                compileExpression(methodVisitor, vars, match.otherwise());
+
+                methodVisitor.visitLabel(end);
+            }
+            case TypedExpression.Lambda lambda -> compileLambda(methodVisitor, vars, lambda);
         }
     }
 
-    private void compileVal2(ClassWriter writer, com.github.imaqtkatt.lang.typed.tree.Node.ValDefinition val) {
+    /**
+     * Evaluates the scrutinee of a {@code match} and dispatches on it, returning the label of each case in
+     * order. Like javac, a {@code TABLESWITCH} is used when the values are dense enough that its size and
+     * constant time beat the binary search of a {@code LOOKUPSWITCH}, and also whenever it is no bigger, which
+     * javac's weighing misses for a couple of adjacent values.
+     */
+    private List<Label> compileSwitch(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Match match, Label otherwise) {
+        compileExpression(methodVisitor, vars, match.scrutinee(), "I");
+
+        var labels = new ArrayList<Label>();
+        var byValue = new TreeMap<Integer, Label>();
+        for (var aCase : match.cases()) {
+            var label = new Label();
+            labels.add(label);
+            byValue.put(aCase.value(), label);
+        }
+        if (byValue.isEmpty()) {
+            methodVisitor.visitInsn(Opcodes.POP);
+            methodVisitor.visitJumpInsn(Opcodes.GOTO, otherwise);
+            return labels;
+        }
+
+        long lo = byValue.firstKey();
+        long hi = byValue.lastKey();
+        long tableSpace = 4 + (hi - lo + 1);
+        long lookupSpace = 3 + 2L * byValue.size();
+        if (tableSpace <= lookupSpace || tableSpace + 3 * 3 <= lookupSpace + 3L * byValue.size()) {
+            var table = new Label[(int) (hi - lo + 1)];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = byValue.getOrDefault((int) (lo + i), otherwise);
+            }
+            methodVisitor.visitTableSwitchInsn((int) lo, (int) hi, otherwise, table);
+        } else {
+            var keys = byValue.keySet().stream().mapToInt(Integer::intValue).toArray();
+            methodVisitor.visitLookupSwitchInsn(otherwise, keys, byValue.values().toArray(Label[]::new));
+        }
+        return labels;
+    }
+
+    private void compileDirectCall(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Call call, CallTarget target) {
+        // polymorphic functions are declared with erased holes, so go by the declared type
+        // of the target instead of the instantiated one and coerce at the boundary
+        var declared = target.fun().type();
+        for (int i = 0; i < call.arguments().size(); i++) {
+            var expected = descriptor(declared.params().get(i), target.substitution());
+            compileExpression(methodVisitor, vars, call.arguments().get(i), expected);
+        }
+        methodVisitor.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                owners.get(target.fun().name()),
+                target.method(),
+                methodDescriptor(declared, target.substitution()),
+                false
+        );
+        coerce(methodVisitor, descriptor(declared.ret(), target.substitution()), descriptor(call.type()));
+    }
+
+    /**
+     * Calls a function value through the {@code invoke} of the interface its type maps to. Only functions
+     * of more than {@link Type.Fun#MAX_ARITY} parameters pass their boxed arguments in an array.
+     * <p>
+     * The call is an {@code invokedynamic} linked by {@code choco.lang.FunctionCallSite}, which caches
+     * the receiver classes the site sees.
+     */
+    private void compileValueCall(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Call call) {
+        var type = functionType(call.callee().type());
+        var valueDescriptor = descriptor(type);
+        var invoke = invokeDescriptor(type);
+        compileExpression(methodVisitor, vars, call.callee(), valueDescriptor);
+
+        if (type.params().size() > Type.Fun.MAX_ARITY) {
+            methodVisitor.visitLdcInsn(call.arguments().size());
+            methodVisitor.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+            for (int i = 0; i < call.arguments().size(); i++) {
+                methodVisitor.visitInsn(Opcodes.DUP);
+                methodVisitor.visitLdcInsn(i);
+                compileExpression(methodVisitor, vars, call.arguments().get(i), OBJECT);
+                methodVisitor.visitInsn(Opcodes.AASTORE);
+            }
+        } else {
+            var parameters = org.objectweb.asm.Type.getArgumentTypes(invoke);
+            for (int i = 0; i < call.arguments().size(); i++) {
+                compileExpression(methodVisitor, vars, call.arguments().get(i), parameters[i].getDescriptor());
+            }
+        }
+
+        methodVisitor.visitInvokeDynamicInsn(
+                "invoke",
+                "(%s%s".formatted(valueDescriptor, invoke.substring(1)),
+                FUNCTION_CALL_SITE
+        );
+        coerce(methodVisitor, org.objectweb.asm.Type.getReturnType(invoke).getDescriptor(), descriptor(call.type()));
+    }
+
+    /**
+     * The function type of an expression, with the current specialization applied.
+     */
+    private Type.Fun functionType(Type type) {
+        return (Type.Fun) Type.extract(Scheme.replace(substitution, type));
+    }
+
+    /**
+     * The descriptor of {@code invoke} on the interface function values of the given type implement.
+     */
+    private String invokeDescriptor(Type.Fun type) {
+        var arity = type.params().size();
+        if (arity > Type.Fun.MAX_ARITY) {
+            return FUNCTION_INVOKE_DESCRIPTOR;
+        }
+        if (options.unboxed() && Type.Fun.PRIMITIVE_INTERFACES.containsKey(type.primitiveMethodDescriptor())) {
+            return type.primitiveMethodDescriptor();
+        }
+        return "(%s)%s".formatted(OBJECT.repeat(arity), OBJECT);
+    }
+
+    /**
+     * A lambda body lifted into a private static method of the class {@code owner}, where it is created.
+     * The {@code captured} locals come first in its descriptor, followed by the parameters of the lambda,
+     * or by the arguments array of a varargs {@code Function}.
+     */
+    private record LiftedLambda(String owner, String name, String descriptor, TypedExpression.Lambda lambda,
+                                Map<String, Type> captured, Map<Integer, Type> substitution) {
+    }
+
+    /**
+     * Pushes the captured locals and creates the closure through {@code LambdaMetafactory}. Lambdas that
+     * capture nothing link to a constant call site, so they evaluate to the same instance every time.
+     */
+    private void compileLambda(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Lambda lambda) {
+        var captured = FreeVariables.of(lambda);
+        var capturedDescriptors = new StringBuilder();
+        for (var entry : captured.entrySet()) {
+            var descriptor = descriptor(entry.getValue());
+            methodVisitor.visitVarInsn(loadOpcode(descriptor), vars.get(entry.getKey()));
+            capturedDescriptors.append(descriptor);
+        }
+
+        var type = functionType(lambda.type());
+        var invoke = invokeDescriptor(type);
+        var parameters = new StringBuilder();
+        if (type.params().size() > Type.Fun.MAX_ARITY) {
+            parameters.append("[Ljava/lang/Object;");
+        } else {
+            type.params().forEach((param) -> parameters.append(descriptor(param)));
+        }
+        var ret = org.objectweb.asm.Type.getReturnType(invoke).getDescriptor();
+        var liftedRet = descriptor(type.ret()).equals("V") ? ret : descriptor(type.ret());
+
+        var lifted = new LiftedLambda(
+                className,
+                "lambda$$%d".formatted(lambdaCount++),
+                "(%s%s)%s".formatted(capturedDescriptors, parameters, liftedRet),
+                lambda,
+                captured,
+                substitution
+        );
+        lambdas.add(lifted);
+
+        methodVisitor.visitInvokeDynamicInsn(
+                "invoke",
+                "(%s)%s".formatted(capturedDescriptors, descriptor(type)),
+                LAMBDA_METAFACTORY,
+                org.objectweb.asm.Type.getMethodType(invoke),
+                new Handle(Opcodes.H_INVOKESTATIC, className, lifted.name(), lifted.descriptor(), false),
+                org.objectweb.asm.Type.getMethodType(instantiatedDescriptor(type, invoke))
+        );
+    }
+
+    /**
+     * The type {@code LambdaMetafactory} checks the arguments of {@code invoke} against before passing them
+     * on. It only unboxes wrapper types, so parameters the interface erases get the boxed type of the value.
+     */
+    private String instantiatedDescriptor(Type.Fun type, String invoke) {
+        if (type.params().size() > Type.Fun.MAX_ARITY) {
+            return invoke;
+        }
+        var erased = org.objectweb.asm.Type.getArgumentTypes(invoke);
+        var instantiated = new StringBuilder();
+        for (int i = 0; i < type.params().size(); i++) {
+            var param = descriptor(type.params().get(i));
+            instantiated.append(erased[i].getDescriptor().equals(OBJECT) ? boxed(param) : param);
+        }
+        return "(%s)%s".formatted(instantiated, org.objectweb.asm.Type.getReturnType(invoke).getDescriptor());
+    }
+
+    private void compileLiftedLambda(ClassVisitor writer, LiftedLambda lifted) {
+        var methodVisitor = writer.visitMethod(
+                Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+                lifted.name(),
+                lifted.descriptor(),
+                null,
+                null
+        );
+        var vars = new LinkedHashMap<String, Integer>();
+        lifted.captured().keySet().forEach((name) -> vars.put(name, vars.size()));
+
+        var lambda = lifted.lambda();
+        var type = functionType(lambda.type());
+        if (type.params().size() > Type.Fun.MAX_ARITY) {
+            // not a valid identifier, only reserves the slot of the arguments array
+            var arguments = vars.size();
+            vars.put("$arguments", arguments);
+            for (int i = 0; i < lambda.parameters().size(); i++) {
+                var param = lambda.parameters().get(i);
+                var paramDescriptor = descriptor(type.params().get(i));
+                methodVisitor.visitVarInsn(Opcodes.ALOAD, arguments);
+                methodVisitor.visitLdcInsn(i);
+                methodVisitor.visitInsn(Opcodes.AALOAD);
+                coerce(methodVisitor, OBJECT, paramDescriptor);
+                vars.computeIfAbsent(param, (_) -> vars.size());
+                methodVisitor.visitVarInsn(storeOpcode(paramDescriptor), vars.get(param));
+            }
+        } else {
+            lambda.parameters().forEach((param) -> vars.computeIfAbsent(param, (_) -> vars.size()));
+        }
+
+        var ret = org.objectweb.asm.Type.getReturnType(lifted.descriptor()).getDescriptor();
+        compileExpression(methodVisitor, vars, lambda.body(), ret);
+        methodVisitor.visitInsn(returnOpcode(ret));
+        methodVisitor.visitMaxs(0, 0);
+        methodVisitor.visitEnd();
+    }
+
+    /**
+     * Compiles the bindings and statements of a chain of {@code let}s and {@code ;}s, in a loop so a long
+     * function body doesn't recurse once per statement, and returns the expression ending the chain.
+     */
+    private TypedExpression compileChain(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression e) {
+        while (true) {
+            switch (e) {
+                case TypedExpression.Let let -> {
+                    compileBinding(methodVisitor, vars, let);
+                    e = let.body();
+                }
+                case TypedExpression.Seq seq -> {
+                    compileExpression(methodVisitor, vars, seq.left());
+                    e = seq.right();
+                }
+                default -> {
+                    return e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the value of a {@code let} into the local slot of its name.
+     */
+    private void compileBinding(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Let let) {
+        vars.computeIfAbsent(let.bind(), (_) -> vars.size());
+        var label = new Label();
+        var value = let.value();
+        if (localCells.contains(let)) {
+            // the cell doesn't escape, its content lives in the slot
+            var cell = cellDescriptor(value.type());
+            var base = ((TypedExpression.Mutable) value).base();
+            methodVisitor.visitLocalVariable(let.bind(), cell, null, label, label, vars.get(let.bind()));
+            compileExpression(methodVisitor, vars, base, cell);
+            methodVisitor.visitVarInsn(storeOpcode(cell), vars.get(let.bind()));
+            return;
+        }
+        methodVisitor.visitLocalVariable(
+                let.bind(),
+                descriptor(value.type()),
+                signature(value.type()),
+                label,
+                label,
+                vars.get(let.bind())
+        );
+        compileExpression(methodVisitor, vars, let.value());
+        methodVisitor.visitVarInsn(storeOpcode(descriptor(value.type())), vars.get(let.bind()));
+    }
+
+    /**
+     * Compiles the expression and converts its result to the representation {@code expected}.
+     */
+    private void compileExpression(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression e, String expected) {
+        if (e instanceof TypedExpression.Int || e instanceof TypedExpression.Bool) {
+            compileLiteral(methodVisitor, e, expected);
+            return;
+        }
+        compileExpression(methodVisitor, vars, e);
+        coerce(methodVisitor, descriptor(e.type()), expected);
+    }
+
+    private void compileVal2(ClassVisitor writer, com.github.imaqtkatt.lang.typed.tree.Node.ValDefinition val) {
+        if (isLazy(val.name())) {
+            compileLazyVal(writer, val);
+            return;
+        }
         writer.visitField(
-                Opcodes.ACC_STATIC | Opcodes.ACC_PUBLIC,
+                Opcodes.ACC_STATIC | Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
                 val.name(),
-                val.type().javaDescriptor(),
-                val.type().signature(),
+                descriptor(val.type()),
+                signature(val.type()),
+                constantValue(val)
+        );
+    }
+
+    private boolean isLazy(String val) {
+        return options.lazyVals() && !constants.containsKey(val);
+    }
+
+    /**
+     * The dynamic constant a lazy val is read through. The JVM resolves it once, on the first {@code ldc}
+     * of it, by calling the initializer of the val.
+     */
+    private ConstantDynamic lazyVal(String val, Type type) {
+        var valueDescriptor = descriptor(type);
+        return new ConstantDynamic(
+                val,
+                valueDescriptor,
+                CONSTANT_INVOKE,
+                new Handle(Opcodes.H_INVOKESTATIC, owners.get(val), val + "$init", "()" + valueDescriptor, false)
+        );
+    }
+
+    /**
+     * Emits the initializer a lazy val is resolved with, and a public accessor that takes the place of
+     * the field for callers outside the class.
+     */
+    private void compileLazyVal(ClassVisitor writer, Node.ValDefinition val) {
+        var valueDescriptor = descriptor(val.type());
+        var init = writer.visitMethod(
+                Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+                val.name() + "$init",
+                "()" + valueDescriptor,
+                null,
                 null
         );
+        compileExpression(init, new LinkedHashMap<>(), val.value(), valueDescriptor);
+        init.visitInsn(returnOpcode(valueDescriptor));
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        var accessor = writer.visitMethod(
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+                val.name(),
+                "()" + valueDescriptor,
+                "()" + signature(val.type()),
+                null
+        );
+        accessor.visitLdcInsn(lazyVal(val.name(), val.type()));
+        accessor.visitInsn(returnOpcode(valueDescriptor));
+        accessor.visitMaxs(0, 0);
+        accessor.visitEnd();
+    }
+
+    /**
+     * The {@code ConstantValue} of the field of a literal val kept as {@code I} or {@code Z}, {@code null}
+     * when it has to be initialized in {@code <clinit>}.
+     */
+    private Object constantValue(Node.ValDefinition val) {
+        return switch (constants.get(val.name())) {
+            case TypedExpression.Int(Type type, Integer i) when descriptor(val.type()).equals("I") -> i;
+            case TypedExpression.Bool(Type type, Boolean b) when descriptor(val.type()).equals("Z") -> b ? 1 : 0;
+            case null, default -> null;
+        };
+    }
+
+    /**
+     * Pushes a literal in the representation {@code expected}. A boxed literal is never allocated at the
+     * site: a {@code Bool} is {@code Boolean.TRUE} or {@code Boolean.FALSE}, an {@code Int} is a dynamic
+     * constant the JVM boxes once, on its first use.
+     */
+    private void compileLiteral(MethodVisitor methodVisitor, TypedExpression literal, String expected) {
+        switch (literal) {
+            case TypedExpression.Int(Type type, Integer i) when expected.equals("I") -> methodVisitor.visitLdcInsn(i);
+            case TypedExpression.Int(Type type, Integer i) -> {
+                methodVisitor.visitLdcInsn(new ConstantDynamic("int", Type.INT.javaDescriptor(), CONSTANT_INVOKE, INTEGER_VALUE_OF, i));
+                coerce(methodVisitor, Type.INT.javaDescriptor(), expected);
+            }
+            case TypedExpression.Bool(Type type, Boolean b) when expected.equals("Z") ->
+                    methodVisitor.visitInsn(b ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+            case TypedExpression.Bool(Type type, Boolean b) -> {
+                methodVisitor.visitFieldInsn(
+                        Opcodes.GETSTATIC,
+                        Type.BOOL.javaType(),
+                        b ? "TRUE" : "FALSE",
+                        Type.BOOL.javaDescriptor()
+                );
+                coerce(methodVisitor, Type.BOOL.javaDescriptor(), expected);
+            }
+            default -> throw new IllegalStateException();
+        }
     }
 
     private void compileArithmetic(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Binary binary) {
-        compileExpression(methodVisitor, vars, binary.left());
-        unwrapInteger(methodVisitor);
-        compileExpression(methodVisitor, vars, binary.right());
-        unwrapInteger(methodVisitor);
+        compileExpression(methodVisitor, vars, binary.left(), "I");
+        compileExpression(methodVisitor, vars, binary.right(), "I");
         switch (binary.op()) {
             case Add -> methodVisitor.visitInsn(Opcodes.IADD);
             case Sub -> methodVisitor.visitInsn(Opcodes.ISUB);
@@ -298,81 +1055,116 @@ public final class Compiler {
             case Div -> methodVisitor.visitInsn(Opcodes.IDIV);
             default -> throw new IllegalStateException();
         }
-        wrapInteger(methodVisitor);
+        coerce(methodVisitor, "I", descriptor(binary.type()));
+    }
+
+    /**
+     * The representation of the content of a cell of the given {@code Mutable} type kept in a local slot.
+     */
+    private String cellDescriptor(Type type) {
+        var mutable = (Type.Mutable) Type.extract(Scheme.replace(substitution, type));
+        return descriptor(mutable.inner());
     }
 
     private void compileSet(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Binary binary) {
-        compileExpression(methodVisitor, vars, binary.left());
-        compileExpression(methodVisitor, vars, binary.right());
+        if (localCells.contains(binary.left())) {
+            var cell = cellDescriptor(binary.left().type());
+            compileExpression(methodVisitor, vars, binary.right(), cell);
+            methodVisitor.visitVarInsn(storeOpcode(cell), vars.get(((TypedExpression.Variable) binary.left()).name()));
+            return;
+        }
+        var cell = descriptor(binary.left().type());
+        var content = contentDescriptor(cell);
+        compileExpression(methodVisitor, vars, binary.left(), cell);
+        compileExpression(methodVisitor, vars, binary.right(), content);
         methodVisitor.visitMethodInsn(
                 Opcodes.INVOKESTATIC,
-                MUTABLE,
+                internalName(cell),
                 "set",
-                MUTABLE_SET_DESCRIPTOR,
+                "(%s%s)V".formatted(cell, content),
                 false
         );
     }
 
-    private void compileComparison(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Binary binary) {
-        compileExpression(methodVisitor, vars, binary.left());
-        unwrapInteger(methodVisitor);
-
-        compileExpression(methodVisitor, vars, binary.right());
-        unwrapInteger(methodVisitor);
+    /**
+     * How a heap cell of the given representation passes its content, unboxed for {@code IntCell} and {@code BoolCell}.
+     */
+    private static String contentDescriptor(String cell) {
+        return switch (cell) {
+            case "Lchoco/lang/IntCell;" -> "I";
+            case "Lchoco/lang/BoolCell;" -> "Z";
+            default -> OBJECT;
+        };
+    }
 
-        var yes = new Label();
+    /**
+     * Materializes the result of a comparison or of {@code and}/{@code or} as a boolean value.
+     */
+    private void compileTest(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Binary binary) {
         var no = new Label();
         var end = new Label();
 
-        switch (binary.op()) {
-            case LT -> methodVisitor.visitJumpInsn(Opcodes.IF_ICMPLT, yes);
-            case GT -> methodVisitor.visitJumpInsn(Opcodes.IF_ICMPGT, yes);
-            case LE -> methodVisitor.visitJumpInsn(Opcodes.IF_ICMPLE, yes);
-            case GE -> methodVisitor.visitJumpInsn(Opcodes.IF_ICMPGE, yes);
-            case Eql -> methodVisitor.visitJumpInsn(Opcodes.IF_ICMPEQ, yes);
-            default -> throw new IllegalStateException();
-        }
+        compileJump(methodVisitor, vars, binary, false, no);
+        methodVisitor.visitInsn(Opcodes.ICONST_1);
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, end);
 
         methodVisitor.visitLabel(no);
         methodVisitor.visitInsn(Opcodes.ICONST_0);
-        methodVisitor.visitJumpInsn(Opcodes.GOTO, end);
-
-        methodVisitor.visitLabel(yes);
-        methodVisitor.visitInsn(Opcodes.ICONST_1);
-//                        methodVisitor.visitJumpInsn(Opcodes.GOTO, end);
 
         methodVisitor.visitLabel(end);
-        wrapBoolean(methodVisitor);
+        coerce(methodVisitor, "Z", descriptor(binary.type()));
     }
 
     /**
-     * Compile logical `and` and `or` operations with short circuit evaluation.
+     * Compiles a condition as control flow: jumps to {@code target} when it evaluates to {@code jumpIf}
+     * and falls through otherwise. Comparisons become a single {@code IF_ICMPxx}, {@code and} and
+     * {@code or} short circuit by jumping, so no boolean is pushed unless the condition is some other
+     * expression.
      */
-    private void compileLogical(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression.Binary binary) {
-        compileExpression(methodVisitor, vars, binary.left());
-        unwrapBoolean(methodVisitor);
-
-        var returnFalse = new Label();
-        var returnTrue = new Label();
-        var wrapBoolean = new Label();
-
-        switch (binary.op()) {
-            case And -> methodVisitor.visitJumpInsn(Opcodes.IFEQ, returnFalse);
-            case Or -> methodVisitor.visitJumpInsn(Opcodes.IFNE, returnTrue);
-            default -> throw new IllegalStateException();
+    private void compileJump(MethodVisitor methodVisitor, Map<String, Integer> vars, TypedExpression e, boolean jumpIf, Label target) {
+        switch (e) {
+            case TypedExpression.Bool(Type ignored, Boolean b) -> {
+                if (b == jumpIf) {
+                    methodVisitor.visitJumpInsn(Opcodes.GOTO, target);
+                }
+            }
+            case TypedExpression.Binary binary when binary.op() == Operation.And || binary.op() == Operation.Or -> {
+                // `and` decides early on false, `or` on true
+                var decidesOn = binary.op() == Operation.Or;
+                if (decidesOn == jumpIf) {
+                    compileJump(methodVisitor, vars, binary.left(), jumpIf, target);
+                    compileJump(methodVisitor, vars, binary.right(), jumpIf, target);
+                } else {
+                    var skip = new Label();
+                    compileJump(methodVisitor, vars, binary.left(), decidesOn, skip);
+                    compileJump(methodVisitor, vars, binary.right(), jumpIf, target);
+                    methodVisitor.visitLabel(skip);
+                }
+            }
+            case TypedExpression.Binary binary when comparisonOpcode(binary.op(), jumpIf) != 0 -> {
+                compileExpression(methodVisitor, vars, binary.left(), "I");
+                compileExpression(methodVisitor, vars, binary.right(), "I");
+                methodVisitor.visitJumpInsn(comparisonOpcode(binary.op(), jumpIf), target);
+            }
+            default -> {
+                compileExpression(methodVisitor, vars, e, "Z");
+                methodVisitor.visitJumpInsn(jumpIf ? Opcodes.IFNE : Opcodes.IFEQ, target);
+            }
         }
+    }
 
-        compileExpression(methodVisitor, vars, binary.right());
-        unwrapBoolean(methodVisitor);
-        methodVisitor.visitJumpInsn(Opcodes.IFEQ, returnFalse);
-
-        methodVisitor.visitLabel(returnTrue);
-        methodVisitor.visitInsn(Opcodes.ICONST_1);
-        methodVisitor.visitJumpInsn(Opcodes.GOTO, wrapBoolean);
-
-        methodVisitor.visitLabel(returnFalse);
-        methodVisitor.visitInsn(Opcodes.ICONST_0);
-        methodVisitor.visitLabel(wrapBoolean);
-        wrapBoolean(methodVisitor);
+    /**
+     * The {@code IF_ICMPxx} taken when the comparison has the result {@code jumpIf}, {@code 0} if the
+     * operator isn't a comparison.
+     */
+    private static int comparisonOpcode(Operation op, boolean jumpIf) {
+        return switch (op) {
+            case LT -> jumpIf ? Opcodes.IF_ICMPLT : Opcodes.IF_ICMPGE;
+            case GT -> jumpIf ? Opcodes.IF_ICMPGT : Opcodes.IF_ICMPLE;
+            case LE -> jumpIf ? Opcodes.IF_ICMPLE : Opcodes.IF_ICMPGT;
+            case GE -> jumpIf ? Opcodes.IF_ICMPGE : Opcodes.IF_ICMPLT;
+            case Eql -> jumpIf ? Opcodes.IF_ICMPEQ : Opcodes.IF_ICMPNE;
+            default -> 0;
+        };
     }
 }
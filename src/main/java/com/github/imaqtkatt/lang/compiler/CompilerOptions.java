@@ -0,0 +1,39 @@
+package com.github.imaqtkatt.lang.compiler;
+
+/**
+ * Switches that select how {@link Compiler} generates code.
+ *
+ * @param unboxed            keep monomorphic {@code Int} and {@code Bool} values as {@code I} and {@code Z}, boxing them only
+ *                           when they flow into a polymorphic or {@code Mutable} position
+ * @param maxSpecializations how many specialized copies of a polymorphic function may be emitted, {@code 0} always
+ *                           calls the generic method
+ * @param lazyVals           compute each non literal val on its first read through a {@code CONSTANT_Dynamic}
+ *                           instead of in {@code <clinit>}, so loading the class only pays for the vals it uses
+ * @param peephole           run the bytecode of every method through {@link Peephole} before it is written
+ * @param classBudget        how many expression nodes of definitions a generated class is filled with before
+ *                           the next definitions go to another class, {@code 0} puts everything in {@code Main}
+ */
+public record CompilerOptions(boolean unboxed, int maxSpecializations, boolean lazyVals, boolean peephole,
+                              int classBudget) {
+    public static final CompilerOptions DEFAULT = new CompilerOptions(true, 8, false, true, 8192);
+
+    public CompilerOptions withUnboxed(boolean unboxed) {
+        return new CompilerOptions(unboxed, maxSpecializations, lazyVals, peephole, classBudget);
+    }
+
+    public CompilerOptions withMaxSpecializations(int maxSpecializations) {
+        return new CompilerOptions(unboxed, maxSpecializations, lazyVals, peephole, classBudget);
+    }
+
+    public CompilerOptions withLazyVals(boolean lazyVals) {
+        return new CompilerOptions(unboxed, maxSpecializations, lazyVals, peephole, classBudget);
+    }
+
+    public CompilerOptions withPeephole(boolean peephole) {
+        return new CompilerOptions(unboxed, maxSpecializations, lazyVals, peephole, classBudget);
+    }
+
+    public CompilerOptions withClassBudget(int classBudget) {
+        return new CompilerOptions(unboxed, maxSpecializations, lazyVals, peephole, classBudget);
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.imaqtkatt.lang.compiler;
+
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Traversal shared by the analyses of the compiler.
+ */
+final class Expressions {
+    /**
+     * Visits {@code e} and the nodes under it in evaluation order, walking the children of a node only when
+     * {@code visit} returns {@code true} for it. The nodes left to visit are kept on a stack, so neither a long
+     * chain of {@code let}s and {@code ;}s nor deep nesting recurses.
+     */
+    static void walk(TypedExpression e, Predicate<TypedExpression> visit) {
+        var work = new ArrayDeque<TypedExpression>();
+        work.push(e);
+        while (!work.isEmpty()) {
+            var node = work.pop();
+            if (visit.test(node)) {
+                var children = children(node);
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    work.push(children.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * The direct children of a node, in evaluation order.
+     */
+    static List<TypedExpression> children(TypedExpression e) {
+        var children = new ArrayList<TypedExpression>();
+        switch (e) {
+            case TypedExpression.Binary binary -> {
+                children.add(binary.left());
+                children.add(binary.right());
+            }
+            case TypedExpression.Call call -> {
+                children.add(call.callee());
+                children.addAll(call.arguments());
+            }
+            case TypedExpression.Let let -> {
+                children.add(let.value());
+                children.add(let.body());
+            }
+            case TypedExpression.Seq seq -> {
+                children.add(seq.left());
+                children.add(seq.right());
+            }
+            case TypedExpression.Mutable mutable -> children.add(mutable.base());
+            case TypedExpression.Deref deref -> children.add(deref.mutable());
+            case TypedExpression.FetchAdd fetchAdd -> {
+                children.add(fetchAdd.mutable());
+                children.add(fetchAdd.delta());
+            }
+            case TypedExpression.CompareAndSet compareAndSet -> {
+                children.add(compareAndSet.mutable());
+                children.add(compareAndSet.expected());
+                children.add(compareAndSet.replacement());
+            }
+            case TypedExpression.Increment increment -> {
+                children.add(increment.counter());
+                children.add(increment.delta());
+            }
+            case TypedExpression.Sum sum -> children.add(sum.counter());
+            case TypedExpression.If ifExpression -> {
+                children.add(ifExpression.condition());
+                children.add(ifExpression.then());
+                children.add(ifExpression.otherwise());
+            }
+            case TypedExpression.Match match -> {
+                children.add(match.scrutinee());
+                match.cases().forEach((aCase) -> children.add(aCase.body()));
+                children.add(match.otherwise());
+            }
+            case TypedExpression.Lambda lambda -> children.add(lambda.body());
+            case TypedExpression.Variable ignored -> {
+            }
+            case TypedExpression.Counter ignored -> {
+            }
+            case TypedExpression.Int ignored -> {
+            }
+            case TypedExpression.Bool ignored -> {
+            }
+        }
+        return children;
+    }
+}
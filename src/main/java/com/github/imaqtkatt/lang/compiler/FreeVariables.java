@@ -0,0 +1,38 @@
+package com.github.imaqtkatt.lang.compiler;
+
+import com.github.imaqtkatt.lang.parser.Scope;
+import com.github.imaqtkatt.lang.typed.Type;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the local variables an expression reads without binding them itself, in order of first use.
+ * <p>
+ * A name can't shadow another in scope, so a name bound anywhere in the lambda, by a {@code let} or as the
+ * parameter of a nested lambda, is never also a variable from outside it, and the bound names are kept in a
+ * single set for the whole walk.
+ */
+final class FreeVariables {
+    static Map<String, Type> of(TypedExpression.Lambda lambda) {
+        var free = new LinkedHashMap<String, Type>();
+        var bound = new HashSet<>(lambda.parameters());
+        Expressions.walk(lambda.body(), (e) -> {
+            switch (e) {
+                case TypedExpression.Variable(Type type, String name, Scope.DeclarationType decType) -> {
+                    if (decType == Scope.DeclarationType.Var && !bound.contains(name)) {
+                        free.putIfAbsent(name, type);
+                    }
+                }
+                case TypedExpression.Let let -> bound.add(let.bind());
+                case TypedExpression.Lambda inner -> bound.addAll(inner.parameters());
+                default -> {
+                }
+            }
+            return true;
+        });
+        return free;
+    }
+}
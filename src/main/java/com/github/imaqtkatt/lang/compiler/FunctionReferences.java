@@ -0,0 +1,45 @@
+package com.github.imaqtkatt.lang.compiler;
+
+import com.github.imaqtkatt.lang.parser.Scope;
+import com.github.imaqtkatt.lang.typed.tree.Node;
+import com.github.imaqtkatt.lang.typed.tree.Program;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects the top-level functions a program uses as values rather than calling them, in order of first use.
+ */
+final class FunctionReferences {
+    static Set<String> of(Program program) {
+        var references = new LinkedHashSet<String>();
+        for (var node : program.definitions()) {
+            switch (node) {
+                case Node.FunDefinition fun -> collect(fun.body(), references);
+                case Node.ValDefinition val -> collect(val.value(), references);
+                case Node.Import ignored -> {
+                }
+            }
+        }
+        return references;
+    }
+
+    private static void collect(TypedExpression e, Set<String> references) {
+        Expressions.walk(e, (node) -> switch (node) {
+            case TypedExpression.Variable variable -> {
+                if (variable.decType() == Scope.DeclarationType.Fun) {
+                    references.add(variable.name());
+                }
+                yield true;
+            }
+            // calling a function by name links to its method directly
+            case TypedExpression.Call call when call.callee() instanceof TypedExpression.Variable variable
+                    && variable.decType() == Scope.DeclarationType.Fun -> {
+                call.arguments().forEach((argument) -> collect(argument, references));
+                yield false;
+            }
+            default -> true;
+        });
+    }
+}
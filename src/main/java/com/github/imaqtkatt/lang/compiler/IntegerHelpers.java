@@ -18,12 +18,15 @@ public final class IntegerHelpers {
     }
 
     static void unwrapInteger(MethodVisitor methodVisitor) {
+        unwrapInteger(methodVisitor, true);
+    }
+
+    static void unwrapInteger(MethodVisitor methodVisitor, boolean checkCast) {
         final String intValue = "intValue";
         final String descriptor = "()I";
-
-        // TODO: check if really needs this
-         methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.INT.javaType());
-
+        if (checkCast) {
+            methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.INT.javaType());
+        }
         methodVisitor.visitMethodInsn(
                 Opcodes.INVOKEVIRTUAL,
                 Type.INT.javaType(),
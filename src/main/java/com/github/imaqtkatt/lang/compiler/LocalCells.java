@@ -0,0 +1,98 @@
+package com.github.imaqtkatt.lang.compiler;
+
+import com.github.imaqtkatt.lang.parser.Scope;
+import com.github.imaqtkatt.lang.tree.Operation;
+import com.github.imaqtkatt.lang.typed.Type;
+import com.github.imaqtkatt.lang.typed.tree.Node;
+import com.github.imaqtkatt.lang.typed.tree.Program;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Escape analysis for {@code let x = mutable e in ...}.
+ * <p>
+ * When the body only ever reads the cell with {@code deref x} and writes it with {@code x <- v}, no one but
+ * the enclosing method can observe it, so it is kept in a local slot instead of a {@code choco.lang.Mutable}.
+ * Passing the cell to a call, capturing it in a lambda, returning it or storing it anywhere makes it escape.
+ * <p>
+ * The result holds the {@code Let} nodes of such cells and the {@code Variable} nodes of their reads and writes,
+ * compared by identity since equal nodes may appear in different places.
+ */
+final class LocalCells {
+    static Set<TypedExpression> of(Program program) {
+        Set<TypedExpression> cells = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (var node : program.definitions()) {
+            switch (node) {
+                case Node.FunDefinition fun -> collect(fun.body(), cells);
+                case Node.ValDefinition val -> collect(val.value(), cells);
+                case Node.Import ignored -> {
+                }
+            }
+        }
+        return cells;
+    }
+
+    private static void collect(TypedExpression e, Set<TypedExpression> cells) {
+        Expressions.walk(e, (node) -> {
+            if (node instanceof TypedExpression.Let let
+                    && let.value() instanceof TypedExpression.Mutable mutable
+                    && Type.extract(((Type.Mutable) mutable.type()).inner()) != Type.VOID) {
+                var uses = new ArrayList<TypedExpression.Variable>();
+                if (!escapes(let.body(), let.bind(), uses)) {
+                    cells.add(let);
+                    cells.addAll(uses);
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Whether the cell bound to {@code name} is used other than through {@code deref} or {@code <-} in
+     * {@code e}, collecting the variables of those uses.
+     */
+    private static boolean escapes(TypedExpression e, String name, List<TypedExpression.Variable> uses) {
+        var escaped = new boolean[1];
+        Expressions.walk(e, (node) -> {
+            if (escaped[0]) {
+                return false;
+            }
+            switch (node) {
+                // any other use escapes, atomic updates included: those are for cells shared with other threads
+                case TypedExpression.Variable variable when isCell(variable, name) -> escaped[0] = true;
+                case TypedExpression.Deref(Type ignored, TypedExpression.Variable variable) when isCell(variable, name) -> {
+                    uses.add(variable);
+                    return false;
+                }
+                case TypedExpression.Binary(Type ignored, TypedExpression.Variable variable, Operation op, TypedExpression value)
+                        when op == Operation.Set && isCell(variable, name) -> {
+                    uses.add(variable);
+                    escaped[0] = escapes(value, name, uses);
+                    return false;
+                }
+                case TypedExpression.Let let when let.bind().equals(name) -> {
+                    escaped[0] = escapes(let.value(), name, uses);
+                    return false;
+                }
+                // the body of a lambda is another method, it can't see the slot
+                case TypedExpression.Lambda lambda -> {
+                    escaped[0] = FreeVariables.of(lambda).containsKey(name);
+                    return false;
+                }
+                default -> {
+                }
+            }
+            return true;
+        });
+        return escaped[0];
+    }
+
+    private static boolean isCell(TypedExpression.Variable variable, String name) {
+        return variable.decType() == Scope.DeclarationType.Var && variable.name().equals(name);
+    }
+}
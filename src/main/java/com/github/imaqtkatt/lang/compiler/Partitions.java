@@ -0,0 +1,82 @@
+package com.github.imaqtkatt.lang.compiler;
+
+import com.github.imaqtkatt.lang.parser.Scope;
+import com.github.imaqtkatt.lang.typed.tree.Node;
+import com.github.imaqtkatt.lang.typed.tree.Program;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Assigns each top-level definition to one of the classes a program is compiled to, so no class outgrows
+ * the limits of a class file. Classes are filled up to {@code budget} expression nodes, a definition bigger
+ * than that gets a class of its own.
+ * <p>
+ * A definition goes to the class holding most of the definitions it uses, among those with room left and
+ * not before the class of any of them. Since a definition only uses the ones declared before it, a class
+ * then only ever uses itself and earlier classes, and initializing the vals of one never starts initializing
+ * a class that is already being initialized.
+ */
+final class Partitions {
+    /**
+     * The index of the class of every function and val by name, {@code 0} for all of them when
+     * {@code budget} is {@code 0}.
+     */
+    static Map<String, Integer> of(Program program, int budget) {
+        var partitions = new LinkedHashMap<String, Integer>();
+        var sizes = new ArrayList<Integer>();
+        sizes.add(0);
+        for (var node : program.definitions()) {
+            String name;
+            TypedExpression body;
+            switch (node) {
+                case Node.FunDefinition fun -> {
+                    name = fun.name();
+                    body = fun.body();
+                }
+                case Node.ValDefinition val -> {
+                    name = val.name();
+                    body = val.value();
+                }
+                case Node.Import ignored -> {
+                    continue;
+                }
+            }
+            if (budget <= 0) {
+                partitions.put(name, 0);
+                continue;
+            }
+
+            var size = new int[1];
+            var uses = new HashMap<Integer, Integer>();
+            Expressions.walk(body, (e) -> {
+                size[0]++;
+                if (e instanceof TypedExpression.Variable variable
+                        && variable.decType() != Scope.DeclarationType.Var
+                        && partitions.containsKey(variable.name())) {
+                    uses.merge(partitions.get(variable.name()), 1, Integer::sum);
+                }
+                return true;
+            });
+            var earliest = uses.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+
+            var chosen = -1;
+            for (int i = earliest; i < sizes.size(); i++) {
+                var fits = sizes.get(i) == 0 || sizes.get(i) + size[0] <= budget;
+                if (fits && (chosen < 0 || uses.getOrDefault(i, 0) > uses.getOrDefault(chosen, 0))) {
+                    chosen = i;
+                }
+            }
+            if (chosen < 0) {
+                chosen = sizes.size();
+                sizes.add(0);
+            }
+            sizes.set(chosen, sizes.get(chosen) + size[0]);
+            partitions.put(name, chosen);
+        }
+        return partitions;
+    }
+}
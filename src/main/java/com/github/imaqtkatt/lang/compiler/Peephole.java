@@ -0,0 +1,302 @@
+package com.github.imaqtkatt.lang.compiler;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Buffers every method of the generated class as a {@link MethodNode} and rewrites it before passing
+ * it on to be serialized. The rewrites only look at a few instructions at a time and run until none
+ * applies:
+ * <ul>
+ *     <li>a box immediately unboxed again, {@code Integer.valueOf} then {@code intValue}, is dropped,
+ *     as is a {@code CHECKCAST} right after a box of the same type</li>
+ *     <li>jumps to a {@code GOTO} go to its target instead, a {@code GOTO} to a return becomes the return,
+ *     a {@code GOTO} to the next instruction is dropped, and code no jump reaches after an unconditional
+ *     transfer is removed</li>
+ *     <li>a store to a slot the method never loads becomes a {@code POP}, and a value pushed without
+ *     effect only to be popped, or loaded only to be stored back, is dropped</li>
+ * </ul>
+ * Two instructions are only treated as adjacent when no jump lands between them.
+ */
+final class Peephole extends ClassVisitor {
+    Peephole(ClassVisitor next) {
+        super(Opcodes.ASM9, next);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        var next = super.visitMethod(access, name, descriptor, signature, exceptions);
+        return new MethodNode(Opcodes.ASM9, access, name, descriptor, signature, exceptions) {
+            @Override
+            public void visitEnd() {
+                optimize(this);
+                accept(next);
+            }
+        };
+    }
+
+    static void optimize(MethodNode method) {
+        var changed = true;
+        while (changed) {
+            changed = removeBoxing(method);
+            changed |= threadJumps(method);
+            changed |= removeUnreachable(method);
+            changed |= removeDeadStores(method);
+            changed |= removeDeadPushes(method);
+        }
+    }
+
+    private static boolean removeBoxing(MethodNode method) {
+        var targets = targets(method);
+        var instructions = method.instructions;
+        var changed = false;
+        var insn = instructions.getFirst();
+        while (insn != null) {
+            var boxed = insn instanceof MethodInsnNode box ? boxedType(box) : null;
+            if (boxed != null) {
+                var next = next(insn, targets);
+                if (next instanceof TypeInsnNode cast && cast.getOpcode() == Opcodes.CHECKCAST && cast.desc.equals(boxed)) {
+                    instructions.remove(cast);
+                    changed = true;
+                    next = next(insn, targets);
+                }
+                if (next instanceof MethodInsnNode unbox && isUnbox(unbox, boxed)) {
+                    var box = insn;
+                    insn = unbox.getNext();
+                    instructions.remove(box);
+                    instructions.remove(unbox);
+                    changed = true;
+                    continue;
+                }
+            }
+            insn = insn.getNext();
+        }
+        return changed;
+    }
+
+    /**
+     * The internal name of the wrapper a call to {@code valueOf} boxes into, {@code null} for other instructions.
+     */
+    private static String boxedType(MethodInsnNode insn) {
+        if (insn.getOpcode() != Opcodes.INVOKESTATIC || !insn.name.equals("valueOf")) {
+            return null;
+        }
+        return switch (insn.owner + insn.desc) {
+            case "java/lang/Integer(I)Ljava/lang/Integer;", "java/lang/Boolean(Z)Ljava/lang/Boolean;" -> insn.owner;
+            default -> null;
+        };
+    }
+
+    private static boolean isUnbox(MethodInsnNode insn, String boxed) {
+        return insn.getOpcode() == Opcodes.INVOKEVIRTUAL && insn.owner.equals(boxed) && switch (boxed) {
+            case "java/lang/Integer" -> insn.name.equals("intValue") && insn.desc.equals("()I");
+            case "java/lang/Boolean" -> insn.name.equals("booleanValue") && insn.desc.equals("()Z");
+            default -> false;
+        };
+    }
+
+    private static boolean threadJumps(MethodNode method) {
+        var instructions = method.instructions;
+        var changed = false;
+        for (var insn : instructions.toArray()) {
+            if (!(insn instanceof JumpInsnNode jump)) {
+                continue;
+            }
+            // follow chains of GOTOs, bounded so a GOTO loop can't hang us
+            for (int hops = 0; hops < 8; hops++) {
+                var landing = real(jump.label);
+                if (landing instanceof JumpInsnNode next && next.getOpcode() == Opcodes.GOTO && next != jump
+                        && next.label != jump.label) {
+                    jump.label = next.label;
+                    changed = true;
+                } else {
+                    break;
+                }
+            }
+            if (jump.getOpcode() != Opcodes.GOTO) {
+                continue;
+            }
+            if (real(jump.getNext()) == real(jump.label)) {
+                instructions.remove(jump);
+                changed = true;
+                continue;
+            }
+            var landing = real(jump.label);
+            if (landing != null && isReturn(landing.getOpcode())) {
+                instructions.set(jump, new InsnNode(landing.getOpcode()));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean removeUnreachable(MethodNode method) {
+        var targets = targets(method);
+        var changed = false;
+        var reachable = true;
+        for (var insn : method.instructions.toArray()) {
+            if (insn instanceof LabelNode label && targets.contains(label)) {
+                reachable = true;
+            } else if (insn.getOpcode() >= 0) {
+                if (!reachable) {
+                    method.instructions.remove(insn);
+                    changed = true;
+                } else if (insn.getOpcode() == Opcodes.GOTO || insn.getOpcode() == Opcodes.ATHROW
+                        || isReturn(insn.getOpcode())
+                        || insn instanceof TableSwitchInsnNode || insn instanceof LookupSwitchInsnNode) {
+                    reachable = false;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static boolean removeDeadStores(MethodNode method) {
+        var loaded = new HashSet<Integer>();
+        for (var insn : method.instructions) {
+            if (insn instanceof VarInsnNode variable && isLoad(variable.getOpcode())) {
+                loaded.add(variable.var);
+            } else if (insn instanceof IincInsnNode increment) {
+                loaded.add(increment.var);
+            }
+        }
+        var changed = false;
+        for (var insn : method.instructions.toArray()) {
+            if (insn instanceof VarInsnNode store && isStore(store.getOpcode()) && !loaded.contains(store.var)) {
+                var wide = store.getOpcode() == Opcodes.LSTORE || store.getOpcode() == Opcodes.DSTORE;
+                method.instructions.set(store, new InsnNode(wide ? Opcodes.POP2 : Opcodes.POP));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Drops a push without side effect that is popped right away, and a load stored straight back to its slot.
+     */
+    private static boolean removeDeadPushes(MethodNode method) {
+        var targets = targets(method);
+        var instructions = method.instructions;
+        var changed = false;
+        var insn = instructions.getFirst();
+        while (insn != null) {
+            var next = insn.getOpcode() >= 0 ? next(insn, targets) : null;
+            var popped = next != null && next.getOpcode() == Opcodes.POP && isSingleSlotPush(insn);
+            var storedBack = insn instanceof VarInsnNode load && isLoad(load.getOpcode())
+                    && next instanceof VarInsnNode store && isStore(store.getOpcode())
+                    && load.var == store.var && store.getOpcode() - load.getOpcode() == Opcodes.ISTORE - Opcodes.ILOAD;
+            if (popped || storedBack) {
+                var dead = insn;
+                insn = next.getNext();
+                instructions.remove(dead);
+                instructions.remove(next);
+                changed = true;
+                continue;
+            }
+            insn = insn.getNext();
+        }
+        return changed;
+    }
+
+    /**
+     * Whether the instruction only pushes one slot, with no effect that dropping it would lose. Dynamic
+     * constants are kept, resolving one may run a val initializer.
+     */
+    private static boolean isSingleSlotPush(AbstractInsnNode insn) {
+        return switch (insn.getOpcode()) {
+            case Opcodes.ACONST_NULL, Opcodes.ICONST_M1, Opcodes.ICONST_0, Opcodes.ICONST_1, Opcodes.ICONST_2,
+                 Opcodes.ICONST_3, Opcodes.ICONST_4, Opcodes.ICONST_5, Opcodes.FCONST_0, Opcodes.FCONST_1,
+                 Opcodes.FCONST_2, Opcodes.BIPUSH, Opcodes.SIPUSH, Opcodes.ILOAD, Opcodes.FLOAD, Opcodes.ALOAD,
+                 Opcodes.DUP -> true;
+            case Opcodes.LDC -> {
+                var constant = ((LdcInsnNode) insn).cst;
+                yield !(constant instanceof ConstantDynamic || constant instanceof Long || constant instanceof Double);
+            }
+            default -> false;
+        };
+    }
+
+    /**
+     * The labels a jump, a switch or an exception handler can transfer control to.
+     */
+    private static Set<LabelNode> targets(MethodNode method) {
+        var targets = new HashSet<LabelNode>();
+        for (var insn : method.instructions) {
+            switch (insn) {
+                case JumpInsnNode jump -> targets.add(jump.label);
+                case TableSwitchInsnNode table -> {
+                    targets.add(table.dflt);
+                    targets.addAll(table.labels);
+                }
+                case LookupSwitchInsnNode lookup -> {
+                    targets.add(lookup.dflt);
+                    targets.addAll(lookup.labels);
+                }
+                default -> {
+                }
+            }
+        }
+        for (TryCatchBlockNode block : method.tryCatchBlocks) {
+            targets.add(block.start);
+            targets.add(block.end);
+            targets.add(block.handler);
+        }
+        return targets;
+    }
+
+    /**
+     * The instruction executed right after {@code insn} when it falls through, {@code null} when a jump
+     * target sits in between, so that the pair may be reached separately.
+     */
+    private static AbstractInsnNode next(AbstractInsnNode insn, Set<LabelNode> targets) {
+        for (var next = insn.getNext(); next != null; next = next.getNext()) {
+            if (next instanceof LabelNode label && targets.contains(label)) {
+                return null;
+            }
+            if (next.getOpcode() >= 0) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The first real instruction at or after {@code insn}, skipping labels, line numbers and frames.
+     */
+    private static AbstractInsnNode real(AbstractInsnNode insn) {
+        while (insn != null && insn.getOpcode() < 0) {
+            insn = insn.getNext();
+        }
+        return insn;
+    }
+
+    private static boolean isReturn(int opcode) {
+        return opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN;
+    }
+
+    private static boolean isLoad(int opcode) {
+        return opcode >= Opcodes.ILOAD && opcode <= Opcodes.ALOAD;
+    }
+
+    private static boolean isStore(int opcode) {
+        return opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE;
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.imaqtkatt.lang.compiler;
+
+import com.github.imaqtkatt.lang.typed.Hole;
+import com.github.imaqtkatt.lang.typed.HoleRef;
+import com.github.imaqtkatt.lang.typed.Scheme;
+import com.github.imaqtkatt.lang.typed.Type;
+import com.github.imaqtkatt.lang.typed.tree.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+
+/**
+ * Records the concrete instantiations of polymorphic top-level functions seen at call sites.
+ * <p>
+ * Every distinct instantiation gets its own copy of the function, compiled with the type variables
+ * replaced, so {@code fun id(x) = x} called with an {@code Int} links to an {@code (I)I} method
+ * instead of paying for boxing and casts. At most {@code limit} copies are made per function,
+ * further instantiations fall back to the generic method.
+ */
+final class Specializations {
+    private final int limit;
+    private final Map<String, Map<String, Specialization>> byFunction = new HashMap<>();
+    private final Queue<Specialization> pending = new ArrayDeque<>();
+
+    Specializations(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * A specialized copy of {@code fun}, where each type variable in {@code substitution} is replaced. Named
+     * {@code <fun>$spec$<n>}, which no identifier of the language can spell.
+     */
+    record Specialization(String name, Node.FunDefinition fun, Map<Integer, Type> substitution) {
+    }
+
+    /**
+     * Finds or creates the copy of {@code fun} for a call through a value of type {@code instantiated}.
+     * Returns empty when the generic method should be called instead.
+     */
+    Optional<Specialization> request(Node.FunDefinition fun, Type instantiated, Map<Integer, Type> enclosing) {
+        var substitution = new LinkedHashMap<Integer, Type>();
+        match(fun.type(), instantiated, enclosing, substitution);
+
+        var key = key(substitution);
+        if (key.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var copies = byFunction.computeIfAbsent(fun.name(), (_) -> new LinkedHashMap<>());
+        var existing = copies.get(key.get());
+        if (existing != null) {
+            return Optional.of(existing);
+        }
+        if (copies.size() >= limit) {
+            return Optional.empty();
+        }
+
+        var specialization = new Specialization("%s$spec$%d".formatted(fun.name(), copies.size()), fun, substitution);
+        copies.put(key.get(), specialization);
+        pending.add(specialization);
+        return Optional.of(specialization);
+    }
+
+    /**
+     * The next specialization whose body still has to be compiled.
+     */
+    Specialization poll() {
+        return pending.poll();
+    }
+
+    /**
+     * Identifies an instantiation by the representation of each type variable, empty if nothing is known
+     * about any of them or if one of them is void, which can't be a parameter.
+     */
+    private static Optional<String> key(Map<Integer, Type> substitution) {
+        List<String> parts = new ArrayList<>();
+        var concrete = false;
+        for (var entry : substitution.entrySet()) {
+            var signature = entry.getValue().primitiveSignature();
+            if (signature.equals("V")) {
+                return Optional.empty();
+            }
+            concrete |= !signature.equals(CoercionHelpers.OBJECT);
+            parts.add(signature);
+        }
+        return concrete ? Optional.of(String.join(",", parts)) : Optional.empty();
+    }
+
+    /**
+     * Walks the declared type next to the instantiated one, recording what each unbound hole became.
+     */
+    private static void match(Type declared, Type instantiated, Map<Integer, Type> enclosing, Map<Integer, Type> out) {
+        switch (declared) {
+            case Type.Hole(HoleRef ref) -> {
+                switch (ref.get()) {
+                    case Hole.Bound(Type bound) -> match(bound, instantiated, enclosing, out);
+                    case Hole.Unbound(Integer id, Integer ignored) ->
+                            out.putIfAbsent(id, Type.extract(Scheme.replace(enclosing, instantiated)));
+                }
+            }
+            case Type.Fun fun -> {
+                if (Type.extract(instantiated) instanceof Type.Fun other && other.params().size() == fun.params().size()) {
+                    for (int i = 0; i < fun.params().size(); i++) {
+                        match(fun.params().get(i), other.params().get(i), enclosing, out);
+                    }
+                    match(fun.ret(), other.ret(), enclosing, out);
+                }
+            }
+            case Type.Mutable(Type inner) -> {
+                if (Type.extract(instantiated) instanceof Type.Mutable(Type other)) {
+                    match(inner, other, enclosing, out);
+                }
+            }
+            case Type.Int anInt -> {
+            }
+            case Type.Bool bool -> {
+            }
+            case Type.TString tString -> {
+            }
+            case Type.Counter counter -> {
+            }
+            case Type.TVoid tVoid -> {
+            }
+        }
+    }
+}
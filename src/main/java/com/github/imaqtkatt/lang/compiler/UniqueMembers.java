@@ -0,0 +1,41 @@
+package com.github.imaqtkatt.lang.compiler;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks that no two methods and no two fields of a generated class share a name and descriptor, which the
+ * JVM would only report as a {@code ClassFormatError} when loading the class. Synthetic members are named with
+ * a {@code $} no identifier of the language can contain, so a clash is a bug of the compiler.
+ */
+final class UniqueMembers extends ClassVisitor {
+    private final Set<String> methods = new HashSet<>();
+    private final Set<String> fields = new HashSet<>();
+    private final String className;
+
+    UniqueMembers(String className, ClassVisitor next) {
+        super(Opcodes.ASM9, next);
+        this.className = className;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        if (!methods.add(name + descriptor)) {
+            throw new IllegalStateException("Duplicate method '%s%s' in class '%s'".formatted(name, descriptor, className));
+        }
+        return super.visitMethod(access, name, descriptor, signature, exceptions);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+        if (!fields.add(name + descriptor)) {
+            throw new IllegalStateException("Duplicate field '%s' in class '%s'".formatted(name, className));
+        }
+        return super.visitField(access, name, descriptor, signature, value);
+    }
+}
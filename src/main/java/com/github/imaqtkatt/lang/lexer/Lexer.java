@@ -155,6 +155,7 @@ public final class Lexer {
             case '>' -> consume('=') ? TokenType.GreaterEqual : TokenType.GreaterThan;
 
             case ',' -> TokenType.Comma;
+            case '.' -> TokenType.Dot;
             case ';' -> TokenType.Semicolon;
             
             case '+' -> TokenType.Plus;
@@ -189,8 +190,15 @@ public final class Lexer {
                         case "if" -> TokenType.If;
                         case "then" -> TokenType.Then;
                         case "else" -> TokenType.Else;
+                        case "match" -> TokenType.Match;
+                        case "case" -> TokenType.Case;
                         case "mutable" -> TokenType.Mutable;
                         case "deref" -> TokenType.Deref;
+                        case "fetchAdd" -> TokenType.FetchAdd;
+                        case "cas" -> TokenType.Cas;
+                        case "counter" -> TokenType.Counter;
+                        case "increment" -> TokenType.Increment;
+                        case "sum" -> TokenType.Sum;
                         case "val" -> TokenType.Val;
                         case "and" -> TokenType.And;
                         case "or" -> TokenType.Or;
@@ -8,8 +8,15 @@ public enum TokenType {
     If,
     Then,
     Else,
+    Match,
+    Case,
     Mutable,
     Deref,
+    FetchAdd,
+    Cas,
+    Counter,
+    Increment,
+    Sum,
     Package,
     Import,
     UpperIdent,
@@ -0,0 +1,57 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+/**
+ * Drops neutral operands, {@code x + 0}, {@code x * 1}, {@code b and true}, and absorbs into {@code 0},
+ * {@code true} or {@code false} when the other operand is pure. An operand compared with or subtracted from
+ * the same variable folds as well. {@code and} and {@code or} short-circuit, so a literal on the left always
+ * decides whether the right operand runs.
+ */
+final class AlgebraicIdentities implements Pass {
+    @Override
+    public TypedExpression rewrite(TypedExpression e) {
+        if (!(e instanceof TypedExpression.Binary binary)) {
+            return e;
+        }
+        var left = binary.left();
+        var right = binary.right();
+        return switch (binary.op()) {
+            case Add -> {
+                if (Trees.isInt(right, 0)) yield left;
+                if (Trees.isInt(left, 0)) yield right;
+                yield binary;
+            }
+            case Sub -> {
+                if (Trees.isInt(right, 0)) yield left;
+                if (Trees.sameVariable(left, right)) yield new TypedExpression.Int(binary.type(), 0);
+                yield binary;
+            }
+            case Mul -> {
+                if (Trees.isInt(right, 1)) yield left;
+                if (Trees.isInt(left, 1)) yield right;
+                if (Trees.isInt(right, 0) && Trees.isPure(left)) yield right;
+                if (Trees.isInt(left, 0) && Trees.isPure(right)) yield left;
+                yield binary;
+            }
+            case Div -> Trees.isInt(right, 1) ? left : binary;
+            case LE, GE, Eql -> Trees.sameVariable(left, right) ? new TypedExpression.Bool(binary.type(), true) : binary;
+            case LT, GT -> Trees.sameVariable(left, right) ? new TypedExpression.Bool(binary.type(), false) : binary;
+            case And -> {
+                if (Trees.isBool(left, true)) yield right;
+                if (Trees.isBool(left, false)) yield left;
+                if (Trees.isBool(right, true)) yield left;
+                if (Trees.isBool(right, false) && Trees.isPure(left)) yield right;
+                yield binary;
+            }
+            case Or -> {
+                if (Trees.isBool(left, false)) yield right;
+                if (Trees.isBool(left, true)) yield left;
+                if (Trees.isBool(right, false)) yield left;
+                if (Trees.isBool(right, true) && Trees.isPure(left)) yield right;
+                yield binary;
+            }
+            case Set -> binary;
+        };
+    }
+}
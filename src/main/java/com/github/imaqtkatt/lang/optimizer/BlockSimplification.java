@@ -0,0 +1,125 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.parser.Scope;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.ArrayList;
+
+/**
+ * Simplifies {@code let} and {@code ;}. A binding whose value is a literal is propagated into its body, a
+ * binding the body never reads is dropped when its value is pure, and {@code let x = e in x} becomes
+ * {@code e}. The left operand of a sequence is dropped when it is pure.
+ */
+final class BlockSimplification implements Pass {
+    @Override
+    public TypedExpression rewrite(TypedExpression e) {
+        return switch (e) {
+            case TypedExpression.Let let -> {
+                if (let.body() instanceof TypedExpression.Variable(var type, String name, Scope.DeclarationType decType)
+                        && decType == Scope.DeclarationType.Var
+                        && name.equals(let.bind())) {
+                    yield let.value();
+                }
+                if (let.value() instanceof TypedExpression.Int || let.value() instanceof TypedExpression.Bool) {
+                    yield substitute(let.body(), let.bind(), let.value());
+                }
+                if (!reads(let.body(), let.bind()) && Trees.isPure(let.value())) {
+                    yield let.body();
+                }
+                yield let;
+            }
+            case TypedExpression.Seq seq -> Trees.isPure(seq.left()) ? seq.right() : seq;
+            default -> e;
+        };
+    }
+
+    /**
+     * Whether the expression reads the local of the given name bound outside of it.
+     */
+    private static boolean reads(TypedExpression e, String name) {
+        return switch (e) {
+            case TypedExpression.Variable variable ->
+                    variable.decType() == Scope.DeclarationType.Var && variable.name().equals(name);
+            case TypedExpression.Let let -> readsChain(let, name);
+            case TypedExpression.Seq seq -> readsChain(seq, name);
+            case TypedExpression.Lambda lambda -> !lambda.parameters().contains(name) && reads(lambda.body(), name);
+            default -> Trees.children(e).stream().anyMatch((child) -> reads(child, name));
+        };
+    }
+
+    /**
+     * {@link #reads} along a chain of {@code let}s and {@code ;}s, followed in a loop.
+     */
+    private static boolean readsChain(TypedExpression e, String name) {
+        while (true) {
+            switch (e) {
+                case TypedExpression.Let let -> {
+                    if (reads(let.value(), name)) {
+                        return true;
+                    }
+                    if (let.bind().equals(name)) {
+                        return false;
+                    }
+                    e = let.body();
+                }
+                case TypedExpression.Seq seq -> {
+                    if (reads(seq.left(), name)) {
+                        return true;
+                    }
+                    e = seq.right();
+                }
+                default -> {
+                    return reads(e, name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the reads of the local of the given name by a literal. Inner bindings of the same name
+     * shadow it, and a literal captures nothing, so no renaming is needed.
+     */
+    private static TypedExpression substitute(TypedExpression e, String name, TypedExpression literal) {
+        return switch (e) {
+            case TypedExpression.Variable variable ->
+                    variable.decType() == Scope.DeclarationType.Var && variable.name().equals(name) ? literal : variable;
+            case TypedExpression.Let let -> substituteChain(let, name, literal);
+            case TypedExpression.Seq seq -> substituteChain(seq, name, literal);
+            case TypedExpression.Lambda lambda -> lambda.parameters().contains(name)
+                    ? lambda
+                    : new TypedExpression.Lambda(lambda.type(), lambda.parameters(), substitute(lambda.body(), name, literal));
+            default -> Trees.map(e, (child) -> substitute(child, name, literal));
+        };
+    }
+
+    /**
+     * {@link #substitute} along a chain of {@code let}s and {@code ;}s, followed in a loop up to the end of
+     * the chain or a binding of the same name, and rebuilt from there.
+     */
+    private static TypedExpression substituteChain(TypedExpression e, String name, TypedExpression literal) {
+        var links = new ArrayList<TypedExpression>();
+        var shadowed = false;
+        while (!shadowed) {
+            if (e instanceof TypedExpression.Let let) {
+                links.add(new TypedExpression.Let(let.type(), let.bind(), substitute(let.value(), name, literal), null));
+                shadowed = let.bind().equals(name);
+                e = let.body();
+            } else if (e instanceof TypedExpression.Seq seq) {
+                links.add(new TypedExpression.Seq(seq.type(), substitute(seq.left(), name, literal), null));
+                e = seq.right();
+            } else {
+                break;
+            }
+        }
+
+        var rebuilt = shadowed ? e : substitute(e, name, literal);
+        for (int i = links.size() - 1; i >= 0; i--) {
+            rebuilt = switch (links.get(i)) {
+                case TypedExpression.Let let -> new TypedExpression.Let(let.type(), let.bind(), let.value(), rebuilt);
+                case TypedExpression.Seq seq -> new TypedExpression.Seq(seq.type(), seq.left(), rebuilt);
+                default -> throw new IllegalStateException();
+            };
+        }
+        return rebuilt;
+    }
+}
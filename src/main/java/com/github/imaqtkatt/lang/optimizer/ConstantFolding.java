@@ -0,0 +1,84 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.tree.Operation;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+/**
+ * Evaluates operators whose operands are literals, with the wrapping semantics of the JVM. A division by
+ * zero is left in place so it still throws at runtime. Additions and multiplications of a non literal by
+ * several literals are reassociated so the literals fold into one: {@code (x + 1) + 2} becomes {@code x + 3}.
+ */
+final class ConstantFolding implements Pass {
+    @Override
+    public TypedExpression rewrite(TypedExpression e) {
+        if (!(e instanceof TypedExpression.Binary binary)) {
+            return e;
+        }
+        if (binary.left() instanceof TypedExpression.Int(var leftType, Integer l)
+                && binary.right() instanceof TypedExpression.Int(var rightType, Integer r)) {
+            return switch (binary.op()) {
+                case Add -> new TypedExpression.Int(binary.type(), l + r);
+                case Sub -> new TypedExpression.Int(binary.type(), l - r);
+                case Mul -> new TypedExpression.Int(binary.type(), l * r);
+                case Div -> r == 0 ? binary : new TypedExpression.Int(binary.type(), l / r);
+                case LT -> new TypedExpression.Bool(binary.type(), l < r);
+                case GT -> new TypedExpression.Bool(binary.type(), l > r);
+                case LE -> new TypedExpression.Bool(binary.type(), l <= r);
+                case GE -> new TypedExpression.Bool(binary.type(), l >= r);
+                case Eql -> new TypedExpression.Bool(binary.type(), l.intValue() == r.intValue());
+                default -> binary;
+            };
+        }
+        if (binary.left() instanceof TypedExpression.Bool(var leftType, Boolean l)
+                && binary.right() instanceof TypedExpression.Bool(var rightType, Boolean r)) {
+            return switch (binary.op()) {
+                case And -> new TypedExpression.Bool(binary.type(), l && r);
+                case Or -> new TypedExpression.Bool(binary.type(), l || r);
+                default -> binary;
+            };
+        }
+        return reassociate(binary);
+    }
+
+    /**
+     * {@code (x op c1) op c2} to {@code x op (c1 op c2)} for {@code +} and {@code *}, which stay associative
+     * under wrapping. A subtraction of a literal is treated as the addition of its negation.
+     */
+    private static TypedExpression reassociate(TypedExpression.Binary binary) {
+        if (!(binary.right() instanceof TypedExpression.Int(var type, Integer c2))
+                || !(binary.left() instanceof TypedExpression.Binary inner)
+                || !(inner.right() instanceof TypedExpression.Int(var innerType, Integer c1))) {
+            return binary;
+        }
+        var outer = additive(binary.op(), c2);
+        var first = additive(inner.op(), c1);
+        if (outer != null && first != null) {
+            return new TypedExpression.Binary(
+                    binary.type(),
+                    inner.left(),
+                    Operation.Add,
+                    new TypedExpression.Int(type, first + outer)
+            );
+        }
+        if (binary.op() == Operation.Mul && inner.op() == Operation.Mul) {
+            return new TypedExpression.Binary(
+                    binary.type(),
+                    inner.left(),
+                    Operation.Mul,
+                    new TypedExpression.Int(type, c1 * c2)
+            );
+        }
+        return binary;
+    }
+
+    /**
+     * The literal added by {@code + c} or {@code - c}, {@code null} for any other operator.
+     */
+    private static Integer additive(Operation op, int c) {
+        return switch (op) {
+            case Add -> c;
+            case Sub -> -c;
+            default -> null;
+        };
+    }
+}
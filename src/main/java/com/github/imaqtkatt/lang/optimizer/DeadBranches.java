@@ -0,0 +1,36 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+/**
+ * Replaces an {@code if} by its taken branch when the condition is a literal, and by either branch when
+ * both are the same and the condition is pure. {@code if c then true else false} becomes {@code c}. A
+ * {@code match} on a literal is replaced by the branch it picks.
+ */
+final class DeadBranches implements Pass {
+    @Override
+    public TypedExpression rewrite(TypedExpression e) {
+        if (e instanceof TypedExpression.Match match
+                && match.scrutinee() instanceof TypedExpression.Int(var type, Integer value)) {
+            return match.cases()
+                    .stream()
+                    .filter((aCase) -> aCase.value() == value)
+                    .map(TypedExpression.Case::body)
+                    .findFirst()
+                    .orElse(match.otherwise());
+        }
+        if (!(e instanceof TypedExpression.If ifExpression)) {
+            return e;
+        }
+        if (ifExpression.condition() instanceof TypedExpression.Bool(var type, Boolean b)) {
+            return b ? ifExpression.then() : ifExpression.otherwise();
+        }
+        if (ifExpression.then().equals(ifExpression.otherwise()) && Trees.isPure(ifExpression.condition())) {
+            return ifExpression.then();
+        }
+        if (Trees.isBool(ifExpression.then(), true) && Trees.isBool(ifExpression.otherwise(), false)) {
+            return ifExpression.condition();
+        }
+        return ifExpression;
+    }
+}
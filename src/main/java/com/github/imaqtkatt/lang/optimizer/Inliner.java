@@ -0,0 +1,166 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.parser.Scope;
+import com.github.imaqtkatt.lang.typed.Type;
+import com.github.imaqtkatt.lang.typed.tree.Node;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces direct calls to small top-level functions by their body. {@code f(a, b)} becomes
+ * {@code let x$1 = a in let y$2 = b in body}, so arguments are still evaluated once and in order, and
+ * the other passes can then fold what the call site knows about them.
+ * <p>
+ * A function is inlined when its body has at most {@code budget} nodes, it can't reach itself through
+ * the call graph, and its type has no type variables, since a generic body is only compiled correctly
+ * through the substitution of a specialization. Every name the body binds is renamed to a fresh one, the
+ * compiler gives a name a single local slot per method, so a copied binding must never meet a binding
+ * of the caller.
+ */
+final class Inliner implements Pass {
+    private final int budget;
+    private final Map<String, Node.FunDefinition> inlinable = new HashMap<>();
+    private int fresh = 0;
+
+    Inliner(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Selects the functions to inline from the current definitions, before each round.
+     */
+    void use(List<Node> definitions) {
+        inlinable.clear();
+        var functions = new HashMap<String, Node.FunDefinition>();
+        var calls = new HashMap<String, Set<String>>();
+        for (var node : definitions) {
+            if (node instanceof Node.FunDefinition fun) {
+                functions.put(fun.name(), fun);
+                var callees = new HashSet<String>();
+                functions(fun.body(), callees);
+                calls.put(fun.name(), callees);
+            }
+        }
+        for (var fun : functions.values()) {
+            if (size(fun.body(), budget) <= budget && monomorphic(fun.type()) && !reaches(calls, fun.name(), fun.name(), new HashSet<>())) {
+                inlinable.put(fun.name(), fun);
+            }
+        }
+    }
+
+    @Override
+    public TypedExpression rewrite(TypedExpression e) {
+        if (!(e instanceof TypedExpression.Call(Type type, TypedExpression callee, List<TypedExpression> arguments))
+                || !(callee instanceof TypedExpression.Variable variable)
+                || variable.decType() != Scope.DeclarationType.Fun) {
+            return e;
+        }
+        var fun = inlinable.get(variable.name());
+        if (fun == null || fun.params().size() != arguments.size()) {
+            return e;
+        }
+
+        var renames = new HashMap<String, String>();
+        var names = new ArrayList<String>();
+        for (var param : fun.params()) {
+            var name = freshName(param);
+            renames.put(param, name);
+            names.add(name);
+        }
+        var inlined = rename(fun.body(), renames);
+        for (int i = arguments.size() - 1; i >= 0; i--) {
+            inlined = new TypedExpression.Let(type, names.get(i), arguments.get(i), inlined);
+        }
+        return inlined;
+    }
+
+    private String freshName(String name) {
+        return "%s$%d".formatted(name, fresh++);
+    }
+
+    /**
+     * Copies the expression with its locals renamed, giving each name it binds a fresh one.
+     */
+    private TypedExpression rename(TypedExpression e, Map<String, String> renames) {
+        return switch (e) {
+            case TypedExpression.Variable variable -> {
+                var renamed = renames.get(variable.name());
+                yield variable.decType() == Scope.DeclarationType.Var && renamed != null
+                        ? new TypedExpression.Variable(variable.type(), renamed, variable.decType())
+                        : variable;
+            }
+            case TypedExpression.Let let -> {
+                var name = freshName(let.bind());
+                var inner = new HashMap<>(renames);
+                inner.put(let.bind(), name);
+                yield new TypedExpression.Let(let.type(), name, rename(let.value(), renames), rename(let.body(), inner));
+            }
+            case TypedExpression.Lambda lambda -> {
+                var inner = new HashMap<>(renames);
+                var parameters = new ArrayList<String>();
+                for (var parameter : lambda.parameters()) {
+                    var name = freshName(parameter);
+                    inner.put(parameter, name);
+                    parameters.add(name);
+                }
+                yield new TypedExpression.Lambda(lambda.type(), parameters, rename(lambda.body(), inner));
+            }
+            default -> Trees.map(e, (child) -> rename(child, renames));
+        };
+    }
+
+    /**
+     * Collects the top-level functions an expression calls or uses as values. The nodes left to visit are
+     * kept on a stack, a whole function body is walked.
+     */
+    private static void functions(TypedExpression e, Set<String> out) {
+        var work = new ArrayDeque<TypedExpression>();
+        work.push(e);
+        while (!work.isEmpty()) {
+            var next = work.pop();
+            if (next instanceof TypedExpression.Variable variable && variable.decType() == Scope.DeclarationType.Fun) {
+                out.add(variable.name());
+            }
+            Trees.children(next).forEach(work::push);
+        }
+    }
+
+    private static boolean reaches(Map<String, Set<String>> calls, String from, String target, Set<String> seen) {
+        for (var callee : calls.getOrDefault(from, Set.of())) {
+            if (callee.equals(target) || (seen.add(callee) && reaches(calls, callee, target, seen))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The number of nodes of the expression, counted up to {@code limit + 1} only.
+     */
+    private static int size(TypedExpression e, int limit) {
+        var work = new ArrayDeque<TypedExpression>();
+        work.push(e);
+        var size = 0;
+        while (!work.isEmpty() && size <= limit) {
+            size++;
+            Trees.children(work.pop()).forEach(work::push);
+        }
+        return size;
+    }
+
+    private static boolean monomorphic(Type type) {
+        return switch (Type.extract(type)) {
+            case Type.Hole ignored -> false;
+            case Type.Fun fun -> fun.params().stream().allMatch(Inliner::monomorphic) && monomorphic(fun.ret());
+            case Type.Mutable(Type inner) -> monomorphic(inner);
+            default -> true;
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.typed.tree.Node;
+import com.github.imaqtkatt.lang.typed.tree.Program;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites a typed program between inference and code generation. The enabled passes run on every node
+ * once its children are rewritten, and the program is rewritten again until it stops changing, so one pass
+ * can expose work for another, like a folded condition leaving a dead branch. Inlining runs first on each
+ * node, against the function bodies as they were at the start of the round. A round changed the program
+ * when some pass returned another node than it was given.
+ */
+public final class Optimizer {
+    private static final int MAX_ROUNDS = 8;
+
+    private final List<Pass> passes = new ArrayList<>();
+    private final Inliner inliner;
+    private boolean changed;
+
+    public Optimizer() {
+        this(OptimizerOptions.DEFAULT);
+    }
+
+    public Optimizer(OptimizerOptions options) {
+        if (options.inlineBudget() > 0) {
+            inliner = new Inliner(options.inlineBudget());
+            passes.add(inliner);
+        } else {
+            inliner = null;
+        }
+        if (options.constantFolding()) {
+            passes.add(new ConstantFolding());
+        }
+        if (options.strengthReduction()) {
+            passes.add(new StrengthReduction());
+        }
+        if (options.algebraicIdentities()) {
+            passes.add(new AlgebraicIdentities());
+        }
+        if (options.deadBranches()) {
+            passes.add(new DeadBranches());
+        }
+        if (options.blockSimplification()) {
+            passes.add(new BlockSimplification());
+        }
+        if (options.switchLowering()) {
+            passes.add(new SwitchLowering());
+        }
+    }
+
+    public Program optimize(Program program) {
+        var definitions = program.definitions();
+        for (int round = 0; round < MAX_ROUNDS && !passes.isEmpty(); round++) {
+            if (inliner != null) {
+                inliner.use(definitions);
+            }
+            changed = false;
+            definitions = definitions.stream().map(this::optimize).toList();
+            if (!changed) {
+                break;
+            }
+        }
+        return new Program(program.packageName(), definitions);
+    }
+
+    private Node optimize(Node node) {
+        return switch (node) {
+            case Node.FunDefinition fun ->
+                    new Node.FunDefinition(fun.type(), fun.paramsTypes(), fun.name(), fun.params(), optimize(fun.body()));
+            case Node.ValDefinition val -> new Node.ValDefinition(val.type(), val.name(), optimize(val.value()));
+            case Node.Import anImport -> anImport;
+        };
+    }
+
+    private TypedExpression optimize(TypedExpression e) {
+        if (e instanceof TypedExpression.Let || e instanceof TypedExpression.Seq) {
+            return Trees.mapChain(e, this::optimize, this::rewrite);
+        }
+        return rewrite(Trees.map(e, this::optimize));
+    }
+
+    private TypedExpression rewrite(TypedExpression e) {
+        for (var pass : passes) {
+            var rewritten = pass.rewrite(e);
+            changed |= rewritten != e;
+            e = rewritten;
+        }
+        return e;
+    }
+}
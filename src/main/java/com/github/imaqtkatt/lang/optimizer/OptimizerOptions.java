@@ -0,0 +1,51 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+/**
+ * Switches that select which passes {@link Optimizer} runs.
+ *
+ * @param constantFolding     evaluate arithmetic, comparisons and logic on literals, and merge constants of
+ *                            chained additions and multiplications
+ * @param strengthReduction   replace multiplications and divisions by small constants with cheaper operations
+ * @param algebraicIdentities drop neutral operands and absorb into zero, {@code true} and {@code false}
+ * @param deadBranches        keep only the taken branch of an {@code if} whose condition is known
+ * @param blockSimplification drop unused {@code let} bindings and effect free {@code ;} operands, and propagate
+ *                            literal {@code let} bindings into their body
+ * @param inlineBudget        the largest body, counted in nodes, of a non recursive top-level function whose calls
+ *                            are replaced by the body, {@code 0} never inlines
+ * @param switchLowering      turn chains of {@code if}s comparing one variable with literals into a {@code match}
+ */
+public record OptimizerOptions(boolean constantFolding, boolean strengthReduction, boolean algebraicIdentities,
+                               boolean deadBranches, boolean blockSimplification, int inlineBudget,
+                               boolean switchLowering) {
+    public static final OptimizerOptions DEFAULT = new OptimizerOptions(true, true, true, true, true, 16, true);
+
+    public static final OptimizerOptions NONE = new OptimizerOptions(false, false, false, false, false, 0, false);
+
+    public OptimizerOptions withConstantFolding(boolean constantFolding) {
+        return new OptimizerOptions(constantFolding, strengthReduction, algebraicIdentities, deadBranches, blockSimplification, inlineBudget, switchLowering);
+    }
+
+    public OptimizerOptions withStrengthReduction(boolean strengthReduction) {
+        return new OptimizerOptions(constantFolding, strengthReduction, algebraicIdentities, deadBranches, blockSimplification, inlineBudget, switchLowering);
+    }
+
+    public OptimizerOptions withAlgebraicIdentities(boolean algebraicIdentities) {
+        return new OptimizerOptions(constantFolding, strengthReduction, algebraicIdentities, deadBranches, blockSimplification, inlineBudget, switchLowering);
+    }
+
+    public OptimizerOptions withDeadBranches(boolean deadBranches) {
+        return new OptimizerOptions(constantFolding, strengthReduction, algebraicIdentities, deadBranches, blockSimplification, inlineBudget, switchLowering);
+    }
+
+    public OptimizerOptions withBlockSimplification(boolean blockSimplification) {
+        return new OptimizerOptions(constantFolding, strengthReduction, algebraicIdentities, deadBranches, blockSimplification, inlineBudget, switchLowering);
+    }
+
+    public OptimizerOptions withInlineBudget(int inlineBudget) {
+        return new OptimizerOptions(constantFolding, strengthReduction, algebraicIdentities, deadBranches, blockSimplification, inlineBudget, switchLowering);
+    }
+
+    public OptimizerOptions withSwitchLowering(boolean switchLowering) {
+        return new OptimizerOptions(constantFolding, strengthReduction, algebraicIdentities, deadBranches, blockSimplification, inlineBudget, switchLowering);
+    }
+}
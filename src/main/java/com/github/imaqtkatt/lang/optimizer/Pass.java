@@ -0,0 +1,11 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+/**
+ * A local rewrite of one node whose children have already been optimized. A pass returns the node itself
+ * when no rule applies, and never changes the type of the value the node produces.
+ */
+interface Pass {
+    TypedExpression rewrite(TypedExpression e);
+}
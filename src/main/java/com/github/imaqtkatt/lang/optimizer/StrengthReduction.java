@@ -0,0 +1,38 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.tree.Operation;
+import com.github.imaqtkatt.lang.typed.Type;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+/**
+ * Replaces multiplications and divisions by literals with cheaper operations. The tree has no shift or
+ * negation, so this covers multiplying or dividing by {@code -1}, which becomes {@code 0 - x} and agrees
+ * with {@code imul} and {@code idiv} on overflow. Doubling is left a multiplication: the JIT emits the same
+ * code for {@code x * 2} as for {@code x + x}, and {@link ConstantFolding} can still merge it with a
+ * multiplication by another literal.
+ */
+final class StrengthReduction implements Pass {
+    @Override
+    public TypedExpression rewrite(TypedExpression e) {
+        if (!(e instanceof TypedExpression.Binary binary)) {
+            return e;
+        }
+        return switch (binary.op()) {
+            case Mul -> {
+                if (Trees.isInt(binary.right(), -1)) {
+                    yield negated(binary, binary.left());
+                }
+                if (Trees.isInt(binary.left(), -1)) {
+                    yield negated(binary, binary.right());
+                }
+                yield binary;
+            }
+            case Div -> Trees.isInt(binary.right(), -1) ? negated(binary, binary.left()) : binary;
+            default -> binary;
+        };
+    }
+
+    private static TypedExpression negated(TypedExpression.Binary binary, TypedExpression operand) {
+        return new TypedExpression.Binary(binary.type(), new TypedExpression.Int(Type.INT, 0), Operation.Sub, operand);
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.tree.Operation;
+import com.github.imaqtkatt.lang.typed.Type;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Rewrites a chain of {@code if}s comparing the same variable with literals,
+ * {@code if n == 0 then a else if n == 1 then b else c}, into a {@code match}, which compiles to one
+ * switch instead of a comparison per branch. A chain ending in a {@code match} on the same variable is
+ * merged into it. A value tested again further down can never match there, so that branch is dropped.
+ * <p>
+ * A chain of {@code Bool}s may end in a bare comparison of the same variable, which is what
+ * {@link DeadBranches} leaves of {@code if n == 1 then true else false}. It is one more case yielding
+ * {@code true}, with {@code false} otherwise.
+ */
+final class SwitchLowering implements Pass {
+    private static final int MIN_CASES = 2;
+
+    @Override
+    public TypedExpression rewrite(TypedExpression e) {
+        if (!(e instanceof TypedExpression.If first) || tested(first.condition(), null) == null) {
+            return e;
+        }
+        var scrutinee = tested(first.condition(), null).variable();
+        var cases = new ArrayList<TypedExpression.Case>();
+        var values = new HashSet<Integer>();
+        var rest = e;
+        while (rest instanceof TypedExpression.If ifExpression && tested(ifExpression.condition(), scrutinee) != null) {
+            var value = tested(ifExpression.condition(), scrutinee).value();
+            if (values.add(value)) {
+                cases.add(new TypedExpression.Case(value, ifExpression.then()));
+            }
+            rest = ifExpression.otherwise();
+        }
+        if (rest instanceof TypedExpression.Match match && Trees.sameVariable(match.scrutinee(), scrutinee)) {
+            for (var aCase : match.cases()) {
+                if (values.add(aCase.value())) {
+                    cases.add(aCase);
+                }
+            }
+            rest = match.otherwise();
+        } else if (rest.type() instanceof Type.Bool && tested(rest, scrutinee) != null) {
+            var value = tested(rest, scrutinee).value();
+            if (values.add(value)) {
+                cases.add(new TypedExpression.Case(value, new TypedExpression.Bool(rest.type(), true)));
+            }
+            rest = new TypedExpression.Bool(rest.type(), false);
+        }
+        if (cases.size() < MIN_CASES) {
+            return e;
+        }
+        return new TypedExpression.Match(e.type(), scrutinee, cases, rest);
+    }
+
+    private record Test(TypedExpression.Variable variable, int value) {
+    }
+
+    /**
+     * The variable and literal a condition compares for equality, {@code null} if it is anything else or
+     * compares another variable than {@code scrutinee}, when given.
+     */
+    private static Test tested(TypedExpression condition, TypedExpression.Variable scrutinee) {
+        if (!(condition instanceof TypedExpression.Binary binary) || binary.op() != Operation.Eql) {
+            return null;
+        }
+        Test test = null;
+        if (binary.left() instanceof TypedExpression.Variable variable
+                && binary.right() instanceof TypedExpression.Int(var type, Integer value)) {
+            test = new Test(variable, value);
+        } else if (binary.right() instanceof TypedExpression.Variable variable
+                && binary.left() instanceof TypedExpression.Int(var type, Integer value)) {
+            test = new Test(variable, value);
+        }
+        if (test == null || scrutinee != null && !Trees.sameVariable(test.variable(), scrutinee)) {
+            return null;
+        }
+        return test;
+    }
+}
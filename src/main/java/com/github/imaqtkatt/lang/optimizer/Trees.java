@@ -0,0 +1,184 @@
+package com.github.imaqtkatt.lang.optimizer;
+
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Structural helpers shared by the passes.
+ */
+final class Trees {
+    /**
+     * Rebuilds a node with the given function applied to each of its direct children.
+     */
+    static TypedExpression map(TypedExpression e, UnaryOperator<TypedExpression> f) {
+        return switch (e) {
+            case TypedExpression.Variable variable -> variable;
+            case TypedExpression.Int i -> i;
+            case TypedExpression.Bool b -> b;
+            case TypedExpression.Counter counter -> counter;
+            case TypedExpression.Binary binary ->
+                    new TypedExpression.Binary(binary.type(), f.apply(binary.left()), binary.op(), f.apply(binary.right()));
+            case TypedExpression.Call call ->
+                    new TypedExpression.Call(call.type(), f.apply(call.callee()), call.arguments().stream().map(f).toList());
+            case TypedExpression.Let let ->
+                    new TypedExpression.Let(let.type(), let.bind(), f.apply(let.value()), f.apply(let.body()));
+            case TypedExpression.Seq seq -> new TypedExpression.Seq(seq.type(), f.apply(seq.left()), f.apply(seq.right()));
+            case TypedExpression.Mutable mutable ->
+                    new TypedExpression.Mutable(mutable.type(), f.apply(mutable.base()), mutable.ordering());
+            case TypedExpression.Deref deref -> new TypedExpression.Deref(deref.type(), f.apply(deref.mutable()));
+            case TypedExpression.FetchAdd fetchAdd ->
+                    new TypedExpression.FetchAdd(fetchAdd.type(), f.apply(fetchAdd.mutable()), f.apply(fetchAdd.delta()));
+            case TypedExpression.CompareAndSet compareAndSet -> new TypedExpression.CompareAndSet(
+                    compareAndSet.type(),
+                    f.apply(compareAndSet.mutable()),
+                    f.apply(compareAndSet.expected()),
+                    f.apply(compareAndSet.replacement())
+            );
+            case TypedExpression.Increment increment ->
+                    new TypedExpression.Increment(increment.type(), f.apply(increment.counter()), f.apply(increment.delta()));
+            case TypedExpression.Sum sum -> new TypedExpression.Sum(sum.type(), f.apply(sum.counter()));
+            case TypedExpression.If ifExpression -> new TypedExpression.If(
+                    ifExpression.type(),
+                    f.apply(ifExpression.condition()),
+                    f.apply(ifExpression.then()),
+                    f.apply(ifExpression.otherwise())
+            );
+            case TypedExpression.Match match -> new TypedExpression.Match(
+                    match.type(),
+                    f.apply(match.scrutinee()),
+                    match.cases()
+                            .stream()
+                            .map((aCase) -> new TypedExpression.Case(aCase.value(), f.apply(aCase.body())))
+                            .toList(),
+                    f.apply(match.otherwise())
+            );
+            case TypedExpression.Lambda lambda ->
+                    new TypedExpression.Lambda(lambda.type(), lambda.parameters(), f.apply(lambda.body()));
+        };
+    }
+
+    /**
+     * Rebuilds a chain of {@code let}s and {@code ;}s in a loop, where {@link #map} would recurse once per
+     * statement of a long function body. {@code f} is applied to the value of each {@code let} and the left
+     * of each {@code ;} in order, then to the expression ending the chain, and the chain is rebuilt from its
+     * last link up with {@code link} applied to each rebuilt link.
+     */
+    static TypedExpression mapChain(TypedExpression e, UnaryOperator<TypedExpression> f, UnaryOperator<TypedExpression> link) {
+        var links = new ArrayList<TypedExpression>();
+        while (true) {
+            if (e instanceof TypedExpression.Let let) {
+                links.add(new TypedExpression.Let(let.type(), let.bind(), f.apply(let.value()), null));
+                e = let.body();
+            } else if (e instanceof TypedExpression.Seq seq) {
+                links.add(new TypedExpression.Seq(seq.type(), f.apply(seq.left()), null));
+                e = seq.right();
+            } else {
+                break;
+            }
+        }
+
+        var rebuilt = f.apply(e);
+        for (int i = links.size() - 1; i >= 0; i--) {
+            rebuilt = link.apply(switch (links.get(i)) {
+                case TypedExpression.Let let -> new TypedExpression.Let(let.type(), let.bind(), let.value(), rebuilt);
+                case TypedExpression.Seq seq -> new TypedExpression.Seq(seq.type(), seq.left(), rebuilt);
+                default -> throw new IllegalStateException();
+            });
+        }
+        return rebuilt;
+    }
+
+    /**
+     * The direct children of a node, in evaluation order.
+     */
+    static List<TypedExpression> children(TypedExpression e) {
+        var children = new ArrayList<TypedExpression>();
+        map(e, (child) -> {
+            children.add(child);
+            return child;
+        });
+        return children;
+    }
+
+    /**
+     * Whether evaluating the expression can be skipped without a visible difference: it has no side effect and
+     * cannot throw. Reading a cell or a counter counts as pure, writing one does not.
+     */
+    static boolean isPure(TypedExpression e) {
+        return switch (e) {
+            case TypedExpression.Variable ignored -> true;
+            case TypedExpression.Int ignored -> true;
+            case TypedExpression.Bool ignored -> true;
+            case TypedExpression.Counter ignored -> true;
+            case TypedExpression.Lambda ignored -> true;
+            case TypedExpression.Binary binary -> switch (binary.op()) {
+                case Set -> false;
+                case Div -> binary.right() instanceof TypedExpression.Int(var type, Integer divisor)
+                        && divisor != 0
+                        && isPure(binary.left());
+                default -> isPure(binary.left()) && isPure(binary.right());
+            };
+            case TypedExpression.Let let -> isPureChain(let);
+            case TypedExpression.Seq seq -> isPureChain(seq);
+            case TypedExpression.If ifExpression -> isPure(ifExpression.condition())
+                    && isPure(ifExpression.then())
+                    && isPure(ifExpression.otherwise());
+            case TypedExpression.Match match -> isPure(match.scrutinee())
+                    && match.cases().stream().allMatch((aCase) -> isPure(aCase.body()))
+                    && isPure(match.otherwise());
+            case TypedExpression.Mutable mutable -> isPure(mutable.base());
+            case TypedExpression.Deref deref -> isPure(deref.mutable());
+            case TypedExpression.Sum sum -> isPure(sum.counter());
+            case TypedExpression.Call ignored -> false;
+            case TypedExpression.FetchAdd ignored -> false;
+            case TypedExpression.CompareAndSet ignored -> false;
+            case TypedExpression.Increment ignored -> false;
+        };
+    }
+
+    /**
+     * {@link #isPure} along a chain of {@code let}s and {@code ;}s, followed in a loop.
+     */
+    private static boolean isPureChain(TypedExpression e) {
+        while (true) {
+            switch (e) {
+                case TypedExpression.Let let -> {
+                    if (!isPure(let.value())) {
+                        return false;
+                    }
+                    e = let.body();
+                }
+                case TypedExpression.Seq seq -> {
+                    if (!isPure(seq.left())) {
+                        return false;
+                    }
+                    e = seq.right();
+                }
+                default -> {
+                    return isPure(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether two expressions read the same variable, so they evaluate to the same value.
+     */
+    static boolean sameVariable(TypedExpression left, TypedExpression right) {
+        return left instanceof TypedExpression.Variable l
+                && right instanceof TypedExpression.Variable r
+                && l.name().equals(r.name())
+                && l.decType() == r.decType();
+    }
+
+    static boolean isInt(TypedExpression e, int value) {
+        return e instanceof TypedExpression.Int(var type, Integer i) && i == value;
+    }
+
+    static boolean isBool(TypedExpression e, boolean value) {
+        return e instanceof TypedExpression.Bool(var type, Boolean b) && b == value;
+    }
+}
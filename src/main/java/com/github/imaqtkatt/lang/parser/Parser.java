@@ -1,5 +1,6 @@
 package com.github.imaqtkatt.lang.parser;
 
+import choco.lang.Ordering;
 import com.github.imaqtkatt.lang.lexer.Lexer;
 import com.github.imaqtkatt.lang.lexer.Token;
 import com.github.imaqtkatt.lang.lexer.TokenType;
@@ -9,6 +10,7 @@ import com.github.imaqtkatt.lang.tree.Operation;
 import com.github.imaqtkatt.lang.tree.Program;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 public final class Parser {
@@ -108,7 +110,6 @@ public final class Parser {
             case Minus -> minus(left);
             case Star -> star(left);
             case Slash -> slash(left);
-            case Semicolon -> seq(left);
             case LeftArrow -> set(left);
             case LessThan -> lt(left);
             case GreaterThan -> gt(left);
@@ -121,12 +122,6 @@ public final class Parser {
         };
     }
 
-    private Expression seq(Expression left) {
-        expect(TokenType.Semicolon);
-        var right = expression(Precedence.Seq);
-        return new Expression.Seq(left, right);
-    }
-
     private Expression call() {
         var callee = primary();
         if (consume(TokenType.LParens)) {
@@ -146,9 +141,45 @@ public final class Parser {
         return callee;
     }
 
-    private Expression let() {
-        scope.enterDynamicScope();
+    /**
+     * Parses a chain of {@code let x = v in} and {@code e;} ending in the expression they scope over. The
+     * links are collected in a loop, with a {@code null} body for now, and folded from the last one, so a
+     * long function body doesn't recurse once per statement. The names bound along the chain share one scope.
+     */
+    private Expression sequence() {
+        var links = new ArrayList<Expression>();
+        var scoped = false;
+        Expression e;
+        while (true) {
+            if (is(TokenType.Let)) {
+                if (!scoped) {
+                    scope.enterDynamicScope();
+                    scoped = true;
+                }
+                links.add(let());
+                continue;
+            }
+            e = expression(Precedence.Seq.left());
+            if (!consume(TokenType.Semicolon)) {
+                break;
+            }
+            links.add(new Expression.Seq(e, null));
+        }
+        if (scoped) {
+            scope.leaveScope();
+        }
+
+        for (int i = links.size() - 1; i >= 0; i--) {
+            e = switch (links.get(i)) {
+                case Expression.Let let -> new Expression.Let(let.bind(), let.value(), e);
+                case Expression.Seq seq -> new Expression.Seq(seq.left(), e);
+                default -> throw new IllegalStateException();
+            };
+        }
+        return e;
+    }
 
+    private Expression.Let let() {
         expect(TokenType.Let);
         var name = expect(TokenType.LowerIdent);
         scope.declare(name.lexeme(), Scope.DeclarationType.Var);
@@ -156,11 +187,8 @@ public final class Parser {
         expect(TokenType.Equal);
         var value = expression(Precedence.Start.left());
         expect(TokenType.In);
-        var body = expression(Precedence.Start);
-
-        scope.leaveScope();
 
-        return new Expression.Let(name.lexeme(), value, body);
+        return new Expression.Let(name.lexeme(), value, null);
     }
 
     private Expression ifExpression() {
@@ -173,10 +201,42 @@ public final class Parser {
         return new Expression.If(condition, then, otherwise);
     }
 
+    private Expression match() {
+        expect(TokenType.Match);
+        var scrutinee = expression(Precedence.Start.left());
+        expect(TokenType.LBrace);
+        var cases = new ArrayList<Expression.Case>();
+        var values = new HashSet<Integer>();
+        while (consume(TokenType.Case)) {
+            var value = Integer.parseInt(expect(TokenType.Integer).lexeme());
+            if (!values.add(value)) {
+                throw new RuntimeException("Duplicate case '%d'".formatted(value));
+            }
+            expect(TokenType.Arrow);
+            cases.add(new Expression.Case(value, expression(Precedence.Start.left())));
+        }
+        expect(TokenType.Else);
+        expect(TokenType.Arrow);
+        var otherwise = expression(Precedence.Start.left());
+        expect(TokenType.RBrace);
+        return new Expression.Match(scrutinee, cases, otherwise);
+    }
+
     private Expression mutable() {
         expect(TokenType.Mutable);
+        var ordering = Ordering.VOLATILE;
+        if (consume(TokenType.Dot)) {
+            var name = expect(TokenType.LowerIdent);
+            ordering = switch (name.lexeme()) {
+                case "plain" -> Ordering.PLAIN;
+                case "opaque" -> Ordering.OPAQUE;
+                case "release" -> Ordering.RELEASE;
+                case "volatile" -> Ordering.VOLATILE;
+                default -> throw new RuntimeException("Unknown memory ordering '%s'".formatted(name.lexeme()));
+            };
+        }
         var e = expression(Precedence.End);
-        return new Expression.Mutable(e);
+        return new Expression.Mutable(e, ordering);
     }
 
     private Expression deref() {
@@ -185,18 +245,68 @@ public final class Parser {
         return new Expression.Deref(e);
     }
 
+    private Expression fetchAdd() {
+        expect(TokenType.FetchAdd);
+        expect(TokenType.LParens);
+        var mutable = expression(Precedence.Start);
+        expect(TokenType.Comma);
+        var delta = expression(Precedence.Start);
+        expect(TokenType.RParens);
+        return new Expression.FetchAdd(mutable, delta);
+    }
+
+    private Expression compareAndSet() {
+        expect(TokenType.Cas);
+        expect(TokenType.LParens);
+        var mutable = expression(Precedence.Start);
+        expect(TokenType.Comma);
+        var expected = expression(Precedence.Start);
+        expect(TokenType.Comma);
+        var replacement = expression(Precedence.Start);
+        expect(TokenType.RParens);
+        return new Expression.CompareAndSet(mutable, expected, replacement);
+    }
+
+    private Expression increment() {
+        expect(TokenType.Increment);
+        expect(TokenType.LParens);
+        var counter = expression(Precedence.Start);
+        expect(TokenType.Comma);
+        var delta = expression(Precedence.Start);
+        expect(TokenType.RParens);
+        return new Expression.Increment(counter, delta);
+    }
+
+    private Expression sum() {
+        expect(TokenType.Sum);
+        var e = expression(Precedence.End);
+        return new Expression.Sum(e);
+    }
+
     private Expression prefix() {
         return switch (peek()) {
-            case Let -> let();
+            case Let -> sequence();
             case Mutable -> mutable();
             case Deref -> deref();
+            case FetchAdd -> fetchAdd();
+            case Cas -> compareAndSet();
+            case Counter -> {
+                expect(TokenType.Counter);
+                yield new Expression.Counter();
+            }
+            case Increment -> increment();
+            case Sum -> sum();
             case If -> ifExpression();
+            case Match -> match();
             case Arrow -> lambda();
             default -> call();
         };
     }
 
     private Expression expression(Precedence precedence) {
+        if (precedence.value <= Precedence.Seq.value) {
+            return sequence();
+        }
         var left = prefix();
 
         while (true) {
@@ -1,23 +1,27 @@
 package com.github.imaqtkatt.lang.parser;
 
+import com.github.imaqtkatt.lang.util.PersistentMap;
+
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * The names declared at each point of the parse. Declarations are kept in a persistent map, so entering a
+ * scope only saves the current map and leaving it restores it, instead of copying every name in scope.
+ */
 public final class Scope {
-    Map<String, DeclarationType> declarations;
-    List<Map<String, DeclarationType>> scopes = new ArrayList<>();
+    PersistentMap<String, DeclarationType> declarations;
+    List<PersistentMap<String, DeclarationType>> scopes = new ArrayList<>();
 
     public Scope() {
-        declarations = new LinkedHashMap<>();
+        declarations = PersistentMap.empty();
     }
 
     public void declare(String name, DeclarationType declarationType) {
         if (declarations.containsKey(name)) {
             throw new RuntimeException("Name '%s' was already declared in the current scope.".formatted(name));
         }
-        declarations.put(name, declarationType);
+        declarations = declarations.put(name, declarationType);
     }
 
     public DeclarationType fetch(String name) {
@@ -29,12 +33,11 @@ public final class Scope {
 
     public void enterRestrictScope() {
         scopes.addLast(this.declarations);
-        this.declarations = new LinkedHashMap<>();
+        this.declarations = PersistentMap.empty();
     }
 
     public void enterDynamicScope() {
         scopes.addLast(this.declarations);
-        this.declarations = new LinkedHashMap<>(this.declarations);
     }
 
     public void leaveScope() {
@@ -1,5 +1,6 @@
 package com.github.imaqtkatt.lang.tree;
 
+import choco.lang.Ordering;
 import com.github.imaqtkatt.lang.parser.Scope;
 
 import java.util.List;
@@ -104,10 +105,12 @@ public sealed interface Expression {
      * !counter
      * }
      * </pre>
+     * The memory ordering of the cell follows a dot, as in {@code mutable.opaque 0}, it is volatile otherwise.
      *
      * @param base
+     * @param ordering
      */
-    record Mutable(Expression base) implements Expression {
+    record Mutable(Expression base, Ordering ordering) implements Expression {
     }
 
     /**
@@ -123,6 +126,66 @@ public sealed interface Expression {
     record Deref(Expression mutable) implements Expression {
     }
 
+    /**
+     * Atomically adds to a mutable {@code Int} and evaluates to its previous content.
+     * <pre>
+     * {@code
+     * let ticket = fetchAdd(next, 1) in
+     * ticket
+     * }
+     * </pre>
+     *
+     * @param mutable
+     * @param delta
+     */
+    record FetchAdd(Expression mutable, Expression delta) implements Expression {
+    }
+
+    /**
+     * Atomically replaces the content of a mutable if it is still {@code expected}, evaluates to whether it did.
+     * <pre>
+     * {@code
+     * cas(lock, false, true)
+     * }
+     * </pre>
+     *
+     * @param mutable
+     * @param expected
+     * @param replacement
+     */
+    record CompareAndSet(Expression mutable, Expression expected, Expression replacement) implements Expression {
+    }
+
+    /**
+     * Creates a new striped counter, for totals that many threads add to.
+     * <pre>
+     * {@code
+     * let hits = counter in
+     * increment(hits, 1);
+     * sum hits
+     * }
+     * </pre>
+     */
+    record Counter() implements Expression {
+    }
+
+    /**
+     * Adds to a counter.
+     *
+     * @param counter
+     * @param delta
+     */
+    record Increment(Expression counter, Expression delta) implements Expression {
+    }
+
+    /**
+     * The total of a counter.
+     *
+     * @param counter
+     */
+    record Sum(Expression counter) implements Expression {
+    }
+
     /**
      * Boolean branch expression.
      * <pre>
@@ -137,6 +200,33 @@ public sealed interface Expression {
     record If(Expression condition, Expression then, Expression otherwise) implements Expression {
     }
 
+    /**
+     * Integer branch expression, picks the case whose literal equals the scrutinee.
+     * <pre>
+     * {@code
+     * match n {
+     *   case 0 -> 1
+     *   case 1 -> 1
+     *   else -> n * 2
+     * }
+     * }
+     * </pre>
+     * @param scrutinee
+     * @param cases
+     * @param otherwise
+     */
+    record Match(Expression scrutinee, List<Case> cases, Expression otherwise) implements Expression {
+    }
+
+    /**
+     * A branch of a {@link Match}.
+     *
+     * @param value
+     * @param body
+     */
+    record Case(int value, Expression body) {
+    }
+
     /**
      * An anonymous function.
      * <pre>
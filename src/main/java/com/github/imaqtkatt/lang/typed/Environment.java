@@ -1,16 +1,34 @@
 package com.github.imaqtkatt.lang.typed;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import com.github.imaqtkatt.lang.util.PersistentMap;
+
 import java.util.Optional;
 
+/**
+ * The names in scope during inference, with the {@link HoleGen} of the compilation, which clones share.
+ * The names are kept in persistent maps, so a clone shares them with the original and costs the same however
+ * many names are in scope.
+ */
 public final class Environment {
-    private Map<String, Scheme> variables = new LinkedHashMap<>();
+    private final HoleGen holes;
+    private PersistentMap<String, Scheme> variables = PersistentMap.empty();
 //    private Map<String, Type> vals = new LinkedHashMap<>();
-    private Map<String, Scheme> declarations = new LinkedHashMap<>();
+    private PersistentMap<String, Scheme> declarations = PersistentMap.empty();
+
+    public Environment() {
+        this(new HoleGen());
+    }
+
+    public Environment(HoleGen holes) {
+        this.holes = holes;
+    }
+
+    public HoleGen holes() {
+        return holes;
+    }
 
     public void insert(String name, Scheme scheme) {
-        variables.put(name, scheme);
+        variables = variables.put(name, scheme);
     }
 
     public Optional<Scheme> fetch(String name) {
@@ -24,21 +42,21 @@ public final class Environment {
     }
 
     public void remove(String name) {
-        variables.remove(name);
+        variables = variables.remove(name);
     }
 
     public void declare(String name, Scheme scheme) {
-        declarations.put(name, scheme);
+        declarations = declarations.put(name, scheme);
     }
 
     public void declareVal(String name, Type type) {
-        declarations.put(name, Scheme.ofType(type));
+        declarations = declarations.put(name, Scheme.ofType(type));
     }
 
     public Environment clone() {
-        var cloned = new Environment();
-        cloned.variables = new LinkedHashMap<>(variables);
-        cloned.declarations = new LinkedHashMap<>(declarations);
+        var cloned = new Environment(holes);
+        cloned.variables = variables;
+        cloned.declarations = declarations;
         return cloned;
     }
 
@@ -1,39 +1,47 @@
 package com.github.imaqtkatt.lang.typed;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the holes of one compilation, numbering them and tracking the let level they are created at.
+ * Each compilation has its own, so compilations can run at the same time. Definitions inferred in parallel
+ * each work with a {@link #fork()}, which keeps its own level and shares the numbering.
+ */
 public final class HoleGen {
-    private static Integer id;
-    private static Integer level;
+    private final AtomicInteger ids;
+    private int level = 0;
+
+    public HoleGen() {
+        this(new AtomicInteger());
+    }
 
-    static {
-        reset();
+    private HoleGen(AtomicInteger ids) {
+        this.ids = ids;
     }
 
-    public static Integer newId() {
-        var tmp = id;
-        id++;
-        return tmp;
+    public HoleGen fork() {
+        return new HoleGen(ids);
     }
 
-    public static Integer currentLevel() {
+    public Integer newId() {
+        return ids.getAndIncrement();
+    }
+
+    public Integer currentLevel() {
         return level;
     }
 
-    public static void enterLevel() {
+    public void enterLevel() {
         level++;
     }
 
-    public static void leaveLevel() {
+    public void leaveLevel() {
         level--;
     }
 
-    public static Type newHole() {
+    public Type newHole() {
         var inner = new Hole.Unbound(newId(), level);
         var ref = new HoleRef(inner);
         return new Type.Hole(ref);
     }
-
-    public static void reset() {
-        id = 0;
-        level = 0;
-    }
 }
@@ -1,19 +1,81 @@
 package com.github.imaqtkatt.lang.typed;
 
-import choco.lang.Mutable;
-
+/**
+ * A type variable, kept as a node of a union-find forest. Holes unified with each other are merged into one
+ * set, and the root of the set holds what they all stand for: still unbound, or bound to a type that is not
+ * itself a hole. Finding the root compresses the path walked and merging links the lower ranked root under
+ * the other, so reading a hole takes near constant time however many holes were unified into it.
+ * <p>
+ * Fields are plain. Holes are only ever merged or bound by the definition being inferred, and published to
+ * others through the completion of its inference. Compressing a path on read only ever points a node further
+ * up its own path, so concurrent readers of a finished definition always find the same root.
+ */
 public final class HoleRef {
-    final Mutable<Hole> inner;
+    private HoleRef parent = this;
+    private int rank = 0;
+    private Hole hole;
 
     public HoleRef(Hole hole) {
-        inner = Mutable.of(hole);
+        this.hole = hole;
     }
 
+    /**
+     * What the hole stands for: the type it is bound to or the id and level of the variable its set keeps.
+     */
     public Hole get() {
-        return Mutable.deref(inner);
+        return find().hole;
     }
 
+    /**
+     * Binds the hole to {@code type}, merging it with the set of {@code type} when it is a hole itself.
+     */
     public void fill(Type type) {
-        Mutable.set(inner, new Hole.Bound(type));
+        if (type instanceof Type.Hole(HoleRef other)) {
+            union(other);
+        } else {
+            find().hole = new Hole.Bound(type);
+        }
+    }
+
+    /**
+     * Whether the two holes were unified into the same set.
+     */
+    public boolean same(HoleRef other) {
+        return find() == other.find();
+    }
+
+    /**
+     * Merges the set of this hole into the one of {@code other}, which keeps standing for what {@code other}
+     * did.
+     */
+    private void union(HoleRef other) {
+        var a = find();
+        var b = other.find();
+        if (a == b) {
+            return;
+        }
+        if (a.rank > b.rank) {
+            b.parent = a;
+            a.hole = b.hole;
+        } else {
+            a.parent = b;
+            if (a.rank == b.rank) {
+                b.rank++;
+            }
+        }
+    }
+
+    private HoleRef find() {
+        var root = this;
+        while (root.parent != root) {
+            root = root.parent;
+        }
+        var node = this;
+        while (node.parent != root) {
+            var next = node.parent;
+            node.parent = root;
+            node = next;
+        }
+        return root;
     }
 }
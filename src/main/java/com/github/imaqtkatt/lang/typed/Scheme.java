@@ -6,18 +6,20 @@ import java.util.List;
 import java.util.Map;
 
 public record Scheme(List<Integer> binds, Type type) {
-    public Type instantiate() {
+    public Type instantiate(HoleGen holes) {
         var table = new HashMap<Integer, Type>();
-        binds.forEach((bind) -> table.put(bind, HoleGen.newHole()));
+        binds.forEach((bind) -> table.put(bind, holes.newHole()));
         return replace(table, type);
     }
 
-    private static Type replace(Map<Integer, Type> table, Type type) {
+    public static Type replace(Map<Integer, Type> table, Type type) {
         return switch (type) {
-            case Type.Fun(List<Type> params, Type ret) -> new Type.Fun(
-                    params.stream().map((param) -> replace(table, param)).toList(),
-                    replace(table, ret)
-            );
+            case Type.Fun fun -> {
+                var params = fun.params().stream().map((param) -> replace(table, param)).toList();
+                var ret = replace(table, fun.ret());
+                // the table of a resolved type only holds resolved types
+                yield fun.isResolved() ? Type.Fun.resolved(params, ret) : new Type.Fun(params, ret);
+            }
 
             case Type.Hole(HoleRef ref) -> switch (ref.get()) {
                 case Hole.Bound(Type bound) -> replace(table, bound);
@@ -27,6 +29,7 @@ public record Scheme(List<Integer> binds, Type type) {
             case Type.Mutable(Type inner) -> new Type.Mutable(replace(table, inner));
 
             case Type.TString tString -> type;
+            case Type.Counter counter -> type;
             case Type.TVoid tVoid -> type;
             case Type.Bool bool -> type;
             case Type.Int anInt -> type;
@@ -37,19 +40,29 @@ public record Scheme(List<Integer> binds, Type type) {
         return new Scheme(List.of(), type);
     }
 
-    public static Scheme generalized(Type type) {
+    public static Scheme generalized(HoleGen holes, Type type) {
         List<Integer> tvs = new LinkedList<>();
-        typeVariables(tvs, type);
+        typeVariables(tvs, type, holes.currentLevel());
         return new Scheme(tvs, type);
     }
 
-    private static void typeVariables(List<Integer> list, Type type) {
+    /**
+     * Whether every hole left unbound in the type is one of the binds. The other holes are shared with the
+     * definition the scheme comes from, and inferring a use of it may bind them.
+     */
+    public boolean isClosed() {
+        List<Integer> unbound = new LinkedList<>();
+        typeVariables(unbound, type, -1);
+        return binds.containsAll(unbound);
+    }
+
+    private static void typeVariables(List<Integer> list, Type type, int currentLevel) {
         switch (type) {
             case Type.Hole(HoleRef ref) -> {
                 switch (ref.get()) {
-                    case Hole.Bound(Type type1) -> typeVariables(list, type1);
+                    case Hole.Bound(Type type1) -> typeVariables(list, type1, currentLevel);
                     case Hole.Unbound(Integer id, Integer level) -> {
-                        if (level > HoleGen.currentLevel()) {
+                        if (level > currentLevel) {
                             list.addLast(id);
                         }
                     }
@@ -57,18 +70,20 @@ public record Scheme(List<Integer> binds, Type type) {
             }
 
             case Type.Fun fun -> {
-                fun.params().forEach((p) -> typeVariables(list, p));
-                typeVariables(list, fun.ret());
+                fun.params().forEach((p) -> typeVariables(list, p, currentLevel));
+                typeVariables(list, fun.ret(), currentLevel);
             }
 
             case Type.Mutable mutable -> {
-                typeVariables(list, mutable.inner());
+                typeVariables(list, mutable.inner(), currentLevel);
             }
 
             case Type.Int anInt -> {
             }
             case Type.TString tString -> {
             }
+            case Type.Counter counter -> {
+            }
             case Type.Bool bool -> {
             }
             case Type.TVoid tVoid -> {
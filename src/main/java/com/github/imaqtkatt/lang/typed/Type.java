@@ -1,18 +1,30 @@
 package com.github.imaqtkatt.lang.typed;
 
 import java.util.List;
+import java.util.Map;
 
 public sealed interface Type {
     String javaDescriptor();
 
+    /**
+     * Like {@link #javaDescriptor()}, but {@code Int} and {@code Bool} map to the primitives {@code I} and {@code Z}.
+     */
+    String primitiveDescriptor();
+
     String javaType();
 
     String signature();
 
+    /**
+     * The generic signature matching {@link #primitiveDescriptor()}.
+     */
+    String primitiveSignature();
+
     Type BOOL = new Bool();
     Type INT = new Int();
     Type STRING = new TString();
     Type VOID = new TVoid();
+    Type COUNTER = new Counter();
 
     record Hole(HoleRef ref) implements Type {
         @Override
@@ -23,6 +35,14 @@ public sealed interface Type {
             };
         }
 
+        @Override
+        public String primitiveDescriptor() {
+            return switch (ref.get()) {
+                case com.github.imaqtkatt.lang.typed.Hole.Bound(Type type) -> type.primitiveDescriptor();
+                case com.github.imaqtkatt.lang.typed.Hole.Unbound ignored -> "Ljava/lang/Object;";
+            };
+        }
+
         @Override
         public String javaType() {
             return switch (ref.get()) {
@@ -39,6 +59,14 @@ public sealed interface Type {
             };
         }
 
+        @Override
+        public String primitiveSignature() {
+            return switch (ref.get()) {
+                case com.github.imaqtkatt.lang.typed.Hole.Bound(Type bound) -> bound.primitiveSignature();
+                case com.github.imaqtkatt.lang.typed.Hole.Unbound ignored -> "Ljava/lang/Object;";
+            };
+        }
+
         @Override
         public String toString() {
             return switch (ref.get()) {
@@ -48,12 +76,25 @@ public sealed interface Type {
         }
     }
 
+    /**
+     * A cell. Cells of {@code Int} and {@code Bool} keep their content unboxed, {@link #primitiveDescriptor()}
+     * describes them as the {@code choco.lang.IntCell} and {@code choco.lang.BoolCell} they are.
+     */
     record Mutable(Type inner) implements Type {
         @Override
         public String javaDescriptor() {
             return "Lchoco/lang/Mutable;";
         }
 
+        @Override
+        public String primitiveDescriptor() {
+            return switch (extract(inner)) {
+                case Int ignored -> "Lchoco/lang/IntCell;";
+                case Bool ignored -> "Lchoco/lang/BoolCell;";
+                default -> javaDescriptor();
+            };
+        }
+
         @Override
         public String javaType() {
             return "choco/lang/Mutable";
@@ -63,6 +104,12 @@ public sealed interface Type {
         public String signature() {
             return "Lchoco/lang/Mutable<%s>;".formatted(inner.signature());
         }
+
+        @Override
+        public String primitiveSignature() {
+            var descriptor = primitiveDescriptor();
+            return descriptor.equals(javaDescriptor()) ? signature() : descriptor;
+        }
     }
 
     record Int() implements Type {
@@ -71,6 +118,11 @@ public sealed interface Type {
             return "Ljava/lang/Integer;";
         }
 
+        @Override
+        public String primitiveDescriptor() {
+            return "I";
+        }
+
         @Override
         public String javaType() {
             return "java/lang/Integer";
@@ -80,6 +132,11 @@ public sealed interface Type {
         public String signature() {
             return "Ljava/lang/Integer;";
         }
+
+        @Override
+        public String primitiveSignature() {
+            return primitiveDescriptor();
+        }
     }
 
     record Bool() implements Type {
@@ -88,6 +145,11 @@ public sealed interface Type {
             return "Ljava/lang/Boolean;";
         }
 
+        @Override
+        public String primitiveDescriptor() {
+            return "Z";
+        }
+
         @Override
         public String javaType() {
             return "java/lang/Boolean";
@@ -97,6 +159,11 @@ public sealed interface Type {
         public String signature() {
             return javaDescriptor();
         }
+
+        @Override
+        public String primitiveSignature() {
+            return primitiveDescriptor();
+        }
     }
 
     record TString() implements Type {
@@ -105,6 +172,11 @@ public sealed interface Type {
             return "Ljava/lang/String;";
         }
 
+        @Override
+        public String primitiveDescriptor() {
+            return javaDescriptor();
+        }
+
         @Override
         public String javaType() {
             return "java/lang/String";
@@ -114,36 +186,233 @@ public sealed interface Type {
         public String signature() {
             return javaDescriptor();
         }
+
+        @Override
+        public String primitiveSignature() {
+            return signature();
+        }
     }
 
-    record Fun(List<Type> params, Type ret) implements Type {
+    /**
+     * A function type. As a value it is one of the function interfaces of {@code choco.lang}, picked by arity
+     * and, for {@link #primitiveDescriptor()}, by whether it maps {@code Int}s to an {@code Int} or a {@code Bool}.
+     * The method descriptors describe top-level functions and lifted lambda bodies.
+     * <p>
+     * A function type made with {@link #resolved} holds no hole that can still be bound, so it builds each of its
+     * descriptors and signatures once and keeps it. Others build them anew on every call.
+     */
+    final class Fun implements Type {
+        /**
+         * Function values of more parameters are a varargs {@code choco.lang.Function}.
+         */
+        public static final int MAX_ARITY = 3;
+
+        /**
+         * The primitive specializations, by the method descriptor of their {@code invoke}.
+         */
+        public static final Map<String, String> PRIMITIVE_INTERFACES = Map.of(
+                "(I)I", "choco/lang/IntToIntFunction",
+                "(II)I", "choco/lang/IntIntToIntFunction",
+                "(I)Z", "choco/lang/IntToBoolFunction",
+                "(II)Z", "choco/lang/IntIntToBoolFunction"
+        );
+
+        private final List<Type> params;
+        private final Type ret;
+        private final boolean resolved;
+        // only filled in when resolved, each string is the same whichever thread builds it first
+        private String javaDescriptor;
+        private String primitiveDescriptor;
+        private String methodDescriptor;
+        private String primitiveMethodDescriptor;
+        private String methodSignature;
+        private String primitiveMethodSignature;
+
+        public Fun(List<Type> params, Type ret) {
+            this(params, ret, false);
+        }
+
+        private Fun(List<Type> params, Type ret, boolean resolved) {
+            this.params = params;
+            this.ret = ret;
+            this.resolved = resolved;
+        }
+
+        /**
+         * A function type whose parameters and return are already resolved, with no hole left but the type
+         * variables of generic functions.
+         */
+        public static Fun resolved(List<Type> params, Type ret) {
+            return new Fun(params, ret, true);
+        }
+
+        public List<Type> params() {
+            return params;
+        }
+
+        public Type ret() {
+            return ret;
+        }
+
+        public boolean isResolved() {
+            return resolved;
+        }
+
         @Override
         public String javaDescriptor() {
-            var builder = new StringBuilder();
-            builder.append('(');
-            for (var param : params) {
-                builder.append(param.javaDescriptor());
+            var descriptor = javaDescriptor;
+            if (descriptor == null) {
+                descriptor = "L%s;".formatted(javaType());
+                if (resolved) {
+                    javaDescriptor = descriptor;
+                }
             }
-            builder.append(')');
-            builder.append(ret.javaDescriptor());
-            return builder.toString();
+            return descriptor;
+        }
+
+        @Override
+        public String primitiveDescriptor() {
+            var descriptor = primitiveDescriptor;
+            if (descriptor == null) {
+                var specialized = PRIMITIVE_INTERFACES.get(primitiveMethodDescriptor());
+                descriptor = specialized != null ? "L%s;".formatted(specialized) : javaDescriptor();
+                if (resolved) {
+                    primitiveDescriptor = descriptor;
+                }
+            }
+            return descriptor;
         }
 
         @Override
         public String javaType() {
-            return "java/lang/Object";
+            return params.size() <= MAX_ARITY ? "choco/lang/Function" + params.size() : "choco/lang/Function";
         }
 
         @Override
         public String signature() {
-            var builder = new StringBuilder();
-            builder.append('(');
-            for (var param : params) {
-                builder.append(param.signature());
+            return javaDescriptor();
+        }
+
+        @Override
+        public String primitiveSignature() {
+            return primitiveDescriptor();
+        }
+
+        public String methodDescriptor() {
+            var descriptor = methodDescriptor;
+            if (descriptor == null) {
+                var builder = new StringBuilder();
+                builder.append('(');
+                for (var param : params) {
+                    builder.append(param.javaDescriptor());
+                }
+                builder.append(')');
+                builder.append(ret.javaDescriptor());
+                descriptor = builder.toString();
+                if (resolved) {
+                    methodDescriptor = descriptor;
+                }
+            }
+            return descriptor;
+        }
+
+        public String primitiveMethodDescriptor() {
+            var descriptor = primitiveMethodDescriptor;
+            if (descriptor == null) {
+                var builder = new StringBuilder();
+                builder.append('(');
+                for (var param : params) {
+                    builder.append(param.primitiveDescriptor());
+                }
+                builder.append(')');
+                builder.append(ret.primitiveDescriptor());
+                descriptor = builder.toString();
+                if (resolved) {
+                    primitiveMethodDescriptor = descriptor;
+                }
+            }
+            return descriptor;
+        }
+
+        public String methodSignature() {
+            var signature = methodSignature;
+            if (signature == null) {
+                var builder = new StringBuilder();
+                builder.append('(');
+                for (var param : params) {
+                    builder.append(param.signature());
+                }
+                builder.append(')');
+                builder.append(ret.signature());
+                signature = builder.toString();
+                if (resolved) {
+                    methodSignature = signature;
+                }
             }
-            builder.append(')');
-            builder.append(ret.signature());
-            return builder.toString();
+            return signature;
+        }
+
+        public String primitiveMethodSignature() {
+            var signature = primitiveMethodSignature;
+            if (signature == null) {
+                var builder = new StringBuilder();
+                builder.append('(');
+                for (var param : params) {
+                    builder.append(param.primitiveSignature());
+                }
+                builder.append(')');
+                builder.append(ret.primitiveSignature());
+                signature = builder.toString();
+                if (resolved) {
+                    primitiveMethodSignature = signature;
+                }
+            }
+            return signature;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Fun other && params.equals(other.params) && ret.equals(other.ret);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * params.hashCode() + ret.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "Fun[params=%s, ret=%s]".formatted(params, ret);
+        }
+    }
+
+    /**
+     * A {@code choco.lang.Counter}, striped so that many threads can add to it without contending.
+     */
+    record Counter() implements Type {
+        @Override
+        public String javaDescriptor() {
+            return "Lchoco/lang/Counter;";
+        }
+
+        @Override
+        public String primitiveDescriptor() {
+            return javaDescriptor();
+        }
+
+        @Override
+        public String javaType() {
+            return "choco/lang/Counter";
+        }
+
+        @Override
+        public String signature() {
+            return javaDescriptor();
+        }
+
+        @Override
+        public String primitiveSignature() {
+            return signature();
         }
     }
 
@@ -153,6 +422,11 @@ public sealed interface Type {
             return "V";
         }
 
+        @Override
+        public String primitiveDescriptor() {
+            return "V";
+        }
+
         @Override
         public String javaType() {
             return "V";
@@ -162,6 +436,11 @@ public sealed interface Type {
         public String signature() {
             return "V";
         }
+
+        @Override
+        public String primitiveSignature() {
+            return "V";
+        }
     }
 
     static Type extract(Type type) {
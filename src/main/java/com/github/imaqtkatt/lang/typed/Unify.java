@@ -1,7 +1,5 @@
 package com.github.imaqtkatt.lang.typed;
 
-import java.util.List;
-
 public final class Unify {
     public static boolean unify(Type a, Type b, boolean unifyVoid) {
         var pair = new Pair(a, b);
@@ -28,8 +26,8 @@ public final class Unify {
                 yield retVal;
             }
 
-            case Pair(Type.Bool(), Type.Bool()), Pair(Type.Int(), Type.Int()), Pair(Type.TString(), Type.TString()) ->
-                    true;
+            case Pair(Type.Bool(), Type.Bool()), Pair(Type.Int(), Type.Int()), Pair(Type.TString(), Type.TString()),
+                 Pair(Type.Counter(), Type.Counter()) -> true;
             case Pair(Type.TVoid(), Type.TVoid()) -> unifyVoid;
 
             default -> {
@@ -43,6 +41,9 @@ public final class Unify {
             case Hole.Bound bound -> swap ? unify(type, bound.type(), unifyVoid) : unify(bound.type(), type, unifyVoid);
 
             case Hole.Unbound ignored -> {
+                if (Type.extract(type) instanceof Type.Hole(HoleRef other) && other.same(hole)) {
+                    yield true;
+                }
                 if (occurs(hole, type)) {
                     yield false;
                 } else {
@@ -55,14 +56,17 @@ public final class Unify {
 
     public static boolean occurs(HoleRef hole, Type t) {
         return switch (t) {
-            case Type.Hole inner -> hole == inner.ref();
+            case Type.Hole inner -> switch (inner.ref().get()) {
+                case Hole.Bound(Type bound) -> occurs(hole, bound);
+                case Hole.Unbound ignored -> hole.same(inner.ref());
+            };
 
-            case Type.Fun(List<Type> params, Type ret) -> params.stream().anyMatch((c) -> occurs(hole, c)) ||
-                    occurs(hole, ret);
+            case Type.Fun fun -> fun.params().stream().anyMatch((c) -> occurs(hole, c)) ||
+                    occurs(hole, fun.ret());
 
             case Type.Mutable(Type inner) -> occurs(hole, inner);
 
-            case Type.Bool(), Type.Int(), Type.TString(), Type.TVoid() -> false;
+            case Type.Bool(), Type.Int(), Type.TString(), Type.TVoid(), Type.Counter() -> false;
         };
     }
 
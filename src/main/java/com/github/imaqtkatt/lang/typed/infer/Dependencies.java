@@ -0,0 +1,85 @@
+package com.github.imaqtkatt.lang.typed.infer;
+
+import com.github.imaqtkatt.lang.parser.Scope;
+import com.github.imaqtkatt.lang.tree.Expression;
+import com.github.imaqtkatt.lang.tree.Node;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects the top-level functions and vals a definition names, itself included when it is recursive.
+ */
+final class Dependencies {
+    static Set<String> of(Node node) {
+        var dependencies = new LinkedHashSet<String>();
+        var work = new ArrayDeque<Expression>();
+        switch (node) {
+            case Node.FunDefinition fun -> work.push(fun.body());
+            case Node.ValDefinition val -> work.push(val.value());
+            case Node.Import ignored -> {
+            }
+        }
+        // the nodes left to visit are kept on a stack, a whole function body is walked
+        while (!work.isEmpty()) {
+            switch (work.pop()) {
+                case Expression.Variable(String name, Scope.DeclarationType decType) -> {
+                    if (decType != Scope.DeclarationType.Var) {
+                        dependencies.add(name);
+                    }
+                }
+                case Expression.Binary binary -> {
+                    work.push(binary.left());
+                    work.push(binary.right());
+                }
+                case Expression.Call call -> {
+                    work.push(call.callee());
+                    call.arguments().forEach(work::push);
+                }
+                case Expression.Let let -> {
+                    work.push(let.value());
+                    work.push(let.body());
+                }
+                case Expression.Seq seq -> {
+                    work.push(seq.left());
+                    work.push(seq.right());
+                }
+                case Expression.Mutable mutable -> work.push(mutable.base());
+                case Expression.Deref deref -> work.push(deref.mutable());
+                case Expression.FetchAdd fetchAdd -> {
+                    work.push(fetchAdd.mutable());
+                    work.push(fetchAdd.delta());
+                }
+                case Expression.CompareAndSet compareAndSet -> {
+                    work.push(compareAndSet.mutable());
+                    work.push(compareAndSet.expected());
+                    work.push(compareAndSet.replacement());
+                }
+                case Expression.Increment increment -> {
+                    work.push(increment.counter());
+                    work.push(increment.delta());
+                }
+                case Expression.Sum sum -> work.push(sum.counter());
+                case Expression.If ifExpression -> {
+                    work.push(ifExpression.condition());
+                    work.push(ifExpression.then());
+                    work.push(ifExpression.otherwise());
+                }
+                case Expression.Match match -> {
+                    work.push(match.scrutinee());
+                    match.cases().forEach((aCase) -> work.push(aCase.body()));
+                    work.push(match.otherwise());
+                }
+                case Expression.Lambda lambda -> work.push(lambda.body());
+                case Expression.Counter ignored -> {
+                }
+                case Expression.Int ignored -> {
+                }
+                case Expression.Bool ignored -> {
+                }
+            }
+        }
+        return dependencies;
+    }
+}
@@ -18,7 +18,7 @@ public final class InferExpression {
                 if (type.isEmpty()) {
                     throw new RuntimeException("Unbound variable '%s'".formatted(name));
                 }
-                yield new TypedExpression.Variable(type.get().instantiate(), name, decType);
+                yield new TypedExpression.Variable(type.get().instantiate(environment.holes()), name, decType);
             }
 
             case Expression.Binary binary -> switch (binary.op()) {
@@ -32,14 +32,26 @@ public final class InferExpression {
 
             case Expression.Deref deref -> inferDeref(environment, deref);
 
-            case Expression.Let let -> inferLet(environment, let);
+            case Expression.Let let -> inferChain(environment, let);
 
             case Expression.Mutable mutable -> inferMutable(environment, mutable);
 
-            case Expression.Seq seq -> inferSeq(environment, seq);
+            case Expression.FetchAdd fetchAdd -> inferFetchAdd(environment, fetchAdd);
+
+            case Expression.CompareAndSet compareAndSet -> inferCompareAndSet(environment, compareAndSet);
+
+            case Expression.Counter ignored -> new TypedExpression.Counter(Type.COUNTER);
+
+            case Expression.Increment increment -> inferIncrement(environment, increment);
+
+            case Expression.Sum sum -> inferSum(environment, sum);
+
+            case Expression.Seq seq -> inferChain(environment, seq);
 
             case Expression.If ifExpression -> inferIf(environment, ifExpression);
 
+            case Expression.Match match -> inferMatch(environment, match);
+
             case Expression.Lambda lambda -> inferLambda(environment, lambda);
 
             case Expression.Int(Integer i) -> new TypedExpression.Int(Type.INT, i);
@@ -47,8 +59,8 @@ public final class InferExpression {
         };
     }
 
-    private static Type.Mutable newMutable() {
-        return new Type.Mutable(HoleGen.newHole());
+    private static Type.Mutable newMutable(Environment environment) {
+        return new Type.Mutable(environment.holes().newHole());
     }
 
     private static TypedExpression inferArithmetic(Environment environment, Operation op, Expression left, Expression right) {
@@ -63,7 +75,7 @@ public final class InferExpression {
 
     private static TypedExpression inferSet(Environment environment, Expression left, Expression right) {
         var inferredLeft = infer(environment, left);
-        var mutableType = newMutable();
+        var mutableType = newMutable(environment);
         unify(inferredLeft.type(), mutableType, false);
 
         var inferredRight = infer(environment, right);
@@ -81,7 +93,7 @@ public final class InferExpression {
 
         var inferredArguments = arguments.stream().map((arg) -> infer(environment, arg)).toList();
         var inferredArgumentTypes = inferredArguments.stream().map(TypedExpression::type).toList();
-        var retType = HoleGen.newHole();
+        var retType = environment.holes().newHole();
         var funType = new Type.Fun(inferredArgumentTypes, retType);
 
         unify(inferredCallee.type(), funType, true);
@@ -91,42 +103,105 @@ public final class InferExpression {
 
     private static TypedExpression inferDeref(Environment environment, Expression.Deref deref) {
         var inferredE = infer(environment, deref.mutable());
-        var mutableType = newMutable();
+        var mutableType = newMutable(environment);
         unify(mutableType, inferredE.type(), false);
 
         return new TypedExpression.Deref(mutableType.inner(), inferredE);
     }
 
-    private static TypedExpression inferLet(Environment environment, Expression.Let let) {
-        HoleGen.enterLevel();
-        var inferredValue = infer(environment, let.value());
-        HoleGen.leaveLevel();
+    /**
+     * Infers a chain of {@code let}s and {@code ;}s in a loop down to the expression ending it, then
+     * rebuilds the chain from there, so a long function body doesn't recurse once per statement. The links
+     * are kept with a {@code null} type and body until then, and the names bound along the chain go into a
+     * single copy of the environment.
+     */
+    private static TypedExpression inferChain(Environment environment, Expression e) {
+        var links = new ArrayList<TypedExpression>();
+        var copied = false;
+        while (true) {
+            if (e instanceof Expression.Let let) {
+                environment.holes().enterLevel();
+                var inferredValue = infer(environment, let.value());
+                environment.holes().leaveLevel();
+
+                // TODO: do this check in a better way
+                if (Type.extract(inferredValue.type()) == Type.VOID) {
+                    throw new RuntimeException("Can't bind to void type");
+                }
 
-        // TODO: do this check in a better way
-        if (Type.extract(inferredValue.type()) == Type.VOID) {
-            throw new RuntimeException("Can't bind to void type");
+                if (!copied) {
+                    environment = environment.clone();
+                    copied = true;
+                }
+                environment.insert(let.bind(), Scheme.ofType(inferredValue.type()));
+                links.add(new TypedExpression.Let(null, let.bind(), inferredValue, null));
+                e = let.body();
+            } else if (e instanceof Expression.Seq seq) {
+                var inferredLeft = infer(environment, seq.left());
+                unify(Type.VOID, inferredLeft.type(), true);
+                links.add(new TypedExpression.Seq(null, inferredLeft, null));
+                e = seq.right();
+            } else {
+                break;
+            }
         }
 
-        // TODO: ???
-        var newEnvironment = environment.clone();
-        newEnvironment.insert(let.bind(), Scheme.ofType(inferredValue.type()));
-
-        var inferredBody = infer(newEnvironment, let.body());
-
-        return new TypedExpression.Let(inferredBody.type(), let.bind(), inferredValue, inferredBody);
+        var inferred = infer(environment, e);
+        for (int i = links.size() - 1; i >= 0; i--) {
+            inferred = switch (links.get(i)) {
+                case TypedExpression.Let let -> new TypedExpression.Let(inferred.type(), let.bind(), let.value(), inferred);
+                case TypedExpression.Seq seq -> new TypedExpression.Seq(inferred.type(), seq.left(), inferred);
+                default -> throw new IllegalStateException();
+            };
+        }
+        return inferred;
     }
 
     private static TypedExpression inferMutable(Environment environment, Expression.Mutable mutable) {
         var inferredInner = infer(environment, mutable.base());
         var mutableType = new Type.Mutable(inferredInner.type());
-        return new TypedExpression.Mutable(mutableType, inferredInner);
+        return new TypedExpression.Mutable(mutableType, inferredInner, mutable.ordering());
     }
 
-    private static TypedExpression inferSeq(Environment environment, Expression.Seq seq) {
-        var inferredLeft = infer(environment, seq.left());
-        unify(Type.VOID, inferredLeft.type(), true);
-        var inferredRight = infer(environment, seq.right());
-        return new TypedExpression.Seq(inferredRight.type(), inferredLeft, inferredRight);
+    private static TypedExpression inferFetchAdd(Environment environment, Expression.FetchAdd fetchAdd) {
+        var inferredMutable = infer(environment, fetchAdd.mutable());
+        unify(new Type.Mutable(Type.INT), inferredMutable.type(), false);
+
+        var inferredDelta = infer(environment, fetchAdd.delta());
+        unify(Type.INT, inferredDelta.type(), false);
+
+        return new TypedExpression.FetchAdd(Type.INT, inferredMutable, inferredDelta);
+    }
+
+    private static TypedExpression inferCompareAndSet(Environment environment, Expression.CompareAndSet compareAndSet) {
+        var inferredMutable = infer(environment, compareAndSet.mutable());
+        var mutableType = newMutable(environment);
+        unify(mutableType, inferredMutable.type(), false);
+
+        var inferredExpected = infer(environment, compareAndSet.expected());
+        unify(mutableType.inner(), inferredExpected.type(), false);
+
+        var inferredReplacement = infer(environment, compareAndSet.replacement());
+        unify(mutableType.inner(), inferredReplacement.type(), false);
+
+        return new TypedExpression.CompareAndSet(Type.BOOL, inferredMutable, inferredExpected, inferredReplacement);
+    }
+
+    private static TypedExpression inferIncrement(Environment environment, Expression.Increment increment) {
+        var inferredCounter = infer(environment, increment.counter());
+        unify(Type.COUNTER, inferredCounter.type(), false);
+
+        var inferredDelta = infer(environment, increment.delta());
+        unify(Type.INT, inferredDelta.type(), false);
+
+        return new TypedExpression.Increment(Type.VOID, inferredCounter, inferredDelta);
+    }
+
+    private static TypedExpression inferSum(Environment environment, Expression.Sum sum) {
+        var inferredCounter = infer(environment, sum.counter());
+        unify(Type.COUNTER, inferredCounter.type(), false);
+
+        return new TypedExpression.Sum(Type.INT, inferredCounter);
     }
 
     private static TypedExpression inferIf(Environment environment, Expression.If ifExpression) {
@@ -140,6 +215,21 @@ public final class InferExpression {
         return new TypedExpression.If(inferredThen.type(), inferredCondition, inferredThen, inferredOtherwise);
     }
 
+    private static TypedExpression inferMatch(Environment environment, Expression.Match match) {
+        var inferredScrutinee = infer(environment, match.scrutinee());
+        unify(Type.INT, inferredScrutinee.type(), false);
+
+        var inferredOtherwise = infer(environment, match.otherwise());
+        var cases = new ArrayList<TypedExpression.Case>();
+        for (var aCase : match.cases()) {
+            var inferredBody = infer(environment, aCase.body());
+            unify(inferredOtherwise.type(), inferredBody.type(), true);
+            cases.add(new TypedExpression.Case(aCase.value(), inferredBody));
+        }
+
+        return new TypedExpression.Match(inferredOtherwise.type(), inferredScrutinee, cases, inferredOtherwise);
+    }
+
     private static TypedExpression inferCompare(Environment environment, Operation op, Expression left, Expression right) {
         var inferredLeft = infer(environment, left);
         unify(Type.INT, inferredLeft.type(), false);
@@ -165,7 +255,7 @@ public final class InferExpression {
 
         var paramTypes = new ArrayList<Type>();
         for (var param : lambda.parameters()) {
-            var hole = HoleGen.newHole();
+            var hole = environment.holes().newHole();
             paramTypes.addLast(hole);
             newEnvironment.insert(param, Scheme.ofType(hole));
         }
@@ -1,13 +1,14 @@
 package com.github.imaqtkatt.lang.typed.infer;
 
 import com.github.imaqtkatt.lang.typed.Environment;
-import com.github.imaqtkatt.lang.typed.HoleGen;
 import com.github.imaqtkatt.lang.typed.Scheme;
 import com.github.imaqtkatt.lang.typed.Type;
 import com.github.imaqtkatt.lang.typed.tree.Node;
 
 import java.util.ArrayList;
 
+import static com.github.imaqtkatt.lang.typed.Unify.unify;
+
 public final class InferNode {
     public static Node infer(Environment environment, com.github.imaqtkatt.lang.tree.Node node) {
         return switch (node) {
@@ -22,23 +23,25 @@ public final class InferNode {
     private static Node inferFunNode(Environment environment, com.github.imaqtkatt.lang.tree.Node.FunDefinition fun) {
         var parameters = new ArrayList<Type>();
 
-        var rec = HoleGen.newHole();
+        var rec = environment.holes().newHole();
         environment.declare(fun.name(), Scheme.ofType(rec));
 
-        HoleGen.enterLevel();
+        environment.holes().enterLevel();
         fun.params().forEach((param) -> {
-            var hole = HoleGen.newHole();
+            var hole = environment.holes().newHole();
             environment.insert(param, Scheme.ofType(hole));
             parameters.add(hole);
         });
-        HoleGen.leaveLevel();
+        environment.holes().leaveLevel();
 
         var inferredBody = InferExpression.infer(environment, fun.body());
         var funType = new Type.Fun(parameters, inferredBody.type());
+        // recursive calls were checked against `rec`, tie it to the real signature
+        unify(rec, funType, true);
 
         fun.params().forEach(environment::remove);
 
-        environment.declare(fun.name(), Scheme.generalized(funType));
+        environment.declare(fun.name(), Scheme.generalized(environment.holes(), funType));
 
         return new Node.FunDefinition(funType, parameters, fun.name(), fun.params(), inferredBody);
     }
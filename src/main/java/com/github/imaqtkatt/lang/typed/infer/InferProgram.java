@@ -1,17 +1,114 @@
 package com.github.imaqtkatt.lang.typed.infer;
 
 import com.github.imaqtkatt.lang.typed.Environment;
+import com.github.imaqtkatt.lang.typed.HoleGen;
+import com.github.imaqtkatt.lang.typed.Scheme;
+import com.github.imaqtkatt.lang.typed.tree.Node;
 import com.github.imaqtkatt.lang.typed.tree.Program;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Infers the definitions of a program over their dependency graph. A definition can only name the ones
+ * declared before it, so the graph has no cycles and each definition is a component of its own. It is
+ * inferred on the executor once the definitions it names are done, in an environment holding only their
+ * schemes, and independent definitions are inferred in parallel.
+ * <p>
+ * The holes a val leaves in its type aren't generalized, a definition using the val may still bind them,
+ * and so may one using any other definition whose scheme isn't closed. Those definitions are inferred one
+ * at a time in source order, each once every definition before it is done, so the holes are bound the same
+ * way and the same error is reported on every run.
+ * <p>
+ * The program comes out with its types resolved by {@link Zonk}.
+ */
 public final class InferProgram {
     public static Program inferProgram(com.github.imaqtkatt.lang.tree.Program program) {
-        Environment environment = new Environment();
-        var definitions = program.definitions()
-                .stream()
-                .map((definition) ->
-                        InferNode.infer(environment, definition)
-                )
-                .toList();
-        return new Program(program.packageName(), definitions);
+        return inferProgram(program, ForkJoinPool.commonPool());
+    }
+
+    public static Program inferProgram(com.github.imaqtkatt.lang.tree.Program program, Executor executor) {
+        var holes = new HoleGen();
+        var schemes = new ConcurrentHashMap<String, Scheme>();
+        var open = ConcurrentHashMap.<String>newKeySet();
+
+        var byName = new HashMap<String, CompletableFuture<Node>>();
+        var inferred = new ArrayList<CompletableFuture<Node>>();
+        // done once every definition so far is, whether it failed or not
+        CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+        for (var definition : program.definitions()) {
+            var dependencies = Dependencies.of(definition);
+            var done = dependencies.stream()
+                    .map(byName::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new);
+            var before = previous;
+            var node = CompletableFuture.allOf(done).thenComposeAsync((_) -> {
+                Supplier<Node> task = () -> {
+                    var environment = new Environment(holes.fork());
+                    dependencies.stream()
+                            .filter(schemes::containsKey)
+                            .forEach((dependency) -> environment.declare(dependency, schemes.get(dependency)));
+                    return infer(environment, definition, schemes, open);
+                };
+                if (dependencies.stream().anyMatch(open::contains)) {
+                    return before.thenApplyAsync((_) -> task.get(), executor);
+                }
+                return CompletableFuture.completedFuture(task.get());
+            }, executor);
+            previous = CompletableFuture.allOf(before, node).handle((_, _) -> null);
+            switch (definition) {
+                case com.github.imaqtkatt.lang.tree.Node.FunDefinition fun -> byName.put(fun.name(), node);
+                case com.github.imaqtkatt.lang.tree.Node.ValDefinition val -> byName.put(val.name(), node);
+                case com.github.imaqtkatt.lang.tree.Node.Import ignored -> {
+                }
+            }
+            inferred.add(node);
+        }
+
+        var definitions = new ArrayList<Node>();
+        for (var node : inferred) {
+            try {
+                definitions.add(node.join());
+            } catch (CompletionException e) {
+                // report the first failing definition in source order, as a sequential inference would
+                switch (e.getCause()) {
+                    case RuntimeException cause -> throw cause;
+                    case Error cause -> throw cause;
+                    default -> throw e;
+                }
+            }
+        }
+        return Zonk.program(new Program(program.packageName(), definitions));
+    }
+
+    /**
+     * Infers a definition and publishes its scheme to the definitions using it.
+     */
+    private static Node infer(Environment environment, com.github.imaqtkatt.lang.tree.Node definition,
+                              Map<String, Scheme> schemes, Set<String> open) {
+        var node = InferNode.infer(environment, definition);
+        var name = switch (node) {
+            case Node.FunDefinition fun -> fun.name();
+            case Node.ValDefinition val -> val.name();
+            case Node.Import ignored -> null;
+        };
+        if (name != null) {
+            var scheme = environment.fetch(name).orElseThrow();
+            if (!scheme.isClosed()) {
+                open.add(name);
+            }
+            schemes.put(name, scheme);
+        }
+        return node;
     }
 }
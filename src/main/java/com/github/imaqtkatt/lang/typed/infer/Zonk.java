@@ -0,0 +1,162 @@
+package com.github.imaqtkatt.lang.typed.infer;
+
+import com.github.imaqtkatt.lang.typed.Hole;
+import com.github.imaqtkatt.lang.typed.HoleRef;
+import com.github.imaqtkatt.lang.typed.Type;
+import com.github.imaqtkatt.lang.typed.tree.Node;
+import com.github.imaqtkatt.lang.typed.tree.Program;
+import com.github.imaqtkatt.lang.typed.tree.TypedExpression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Rewrites an inferred program so no type in it refers to a bound hole anymore, once inference is done and
+ * nothing binds one again. Each hole is replaced by what it was bound to, and the holes still unbound, the
+ * type variables of generic functions, by one fresh hole per variable that no inference state reaches.
+ * <p>
+ * Equal types come out as the same object, and function types as {@link Type.Fun#resolved}, so code
+ * generation builds the descriptors and signatures of each function type once.
+ */
+final class Zonk {
+    private final Map<Type, Type> resolved = new IdentityHashMap<>();
+    private final Map<Type, Type> interned = new HashMap<>();
+    private final Map<Integer, Type> variables = new HashMap<>();
+
+    static Program program(Program program) {
+        var zonk = new Zonk();
+        var definitions = program.definitions().stream().map(zonk::node).toList();
+        return new Program(program.packageName(), definitions);
+    }
+
+    private Node node(Node node) {
+        return switch (node) {
+            case Node.FunDefinition fun -> new Node.FunDefinition(
+                    (Type.Fun) type(fun.type()),
+                    fun.paramsTypes().stream().map(this::type).toList(),
+                    fun.name(),
+                    fun.params(),
+                    expression(fun.body())
+            );
+            case Node.ValDefinition val -> new Node.ValDefinition(type(val.type()), val.name(), expression(val.value()));
+            case Node.Import anImport -> anImport;
+        };
+    }
+
+    private TypedExpression expression(TypedExpression e) {
+        return switch (e) {
+            case TypedExpression.Variable variable ->
+                    new TypedExpression.Variable(type(variable.type()), variable.name(), variable.decType());
+            case TypedExpression.Int i -> new TypedExpression.Int(type(i.type()), i.i());
+            case TypedExpression.Bool b -> new TypedExpression.Bool(type(b.type()), b.b());
+            case TypedExpression.Binary binary -> new TypedExpression.Binary(
+                    type(binary.type()),
+                    expression(binary.left()),
+                    binary.op(),
+                    expression(binary.right())
+            );
+            case TypedExpression.Call call -> new TypedExpression.Call(
+                    type(call.type()),
+                    expression(call.callee()),
+                    call.arguments().stream().map(this::expression).toList()
+            );
+            case TypedExpression.Let ignored -> chain(e);
+            case TypedExpression.Seq ignored -> chain(e);
+            case TypedExpression.Mutable mutable ->
+                    new TypedExpression.Mutable(type(mutable.type()), expression(mutable.base()), mutable.ordering());
+            case TypedExpression.Deref deref -> new TypedExpression.Deref(type(deref.type()), expression(deref.mutable()));
+            case TypedExpression.FetchAdd fetchAdd -> new TypedExpression.FetchAdd(
+                    type(fetchAdd.type()),
+                    expression(fetchAdd.mutable()),
+                    expression(fetchAdd.delta())
+            );
+            case TypedExpression.CompareAndSet compareAndSet -> new TypedExpression.CompareAndSet(
+                    type(compareAndSet.type()),
+                    expression(compareAndSet.mutable()),
+                    expression(compareAndSet.expected()),
+                    expression(compareAndSet.replacement())
+            );
+            case TypedExpression.Counter counter -> new TypedExpression.Counter(type(counter.type()));
+            case TypedExpression.Increment increment -> new TypedExpression.Increment(
+                    type(increment.type()),
+                    expression(increment.counter()),
+                    expression(increment.delta())
+            );
+            case TypedExpression.Sum sum -> new TypedExpression.Sum(type(sum.type()), expression(sum.counter()));
+            case TypedExpression.If ifExpression -> new TypedExpression.If(
+                    type(ifExpression.type()),
+                    expression(ifExpression.condition()),
+                    expression(ifExpression.then()),
+                    expression(ifExpression.otherwise())
+            );
+            case TypedExpression.Match match -> new TypedExpression.Match(
+                    type(match.type()),
+                    expression(match.scrutinee()),
+                    match.cases().stream()
+                            .map((aCase) -> new TypedExpression.Case(aCase.value(), expression(aCase.body())))
+                            .toList(),
+                    expression(match.otherwise())
+            );
+            case TypedExpression.Lambda lambda ->
+                    new TypedExpression.Lambda(type(lambda.type()), lambda.parameters(), expression(lambda.body()));
+        };
+    }
+
+    /**
+     * Rewrites a chain of {@code Let}s and {@code Seq}s in a loop, so a long function body doesn't recurse once
+     * per statement.
+     */
+    private TypedExpression chain(TypedExpression e) {
+        var links = new ArrayList<TypedExpression>();
+        while (true) {
+            switch (e) {
+                case TypedExpression.Let let -> {
+                    links.add(new TypedExpression.Let(type(let.type()), let.bind(), expression(let.value()), null));
+                    e = let.body();
+                }
+                case TypedExpression.Seq seq -> {
+                    links.add(new TypedExpression.Seq(type(seq.type()), expression(seq.left()), null));
+                    e = seq.right();
+                }
+                default -> {
+                    var rebuilt = expression(e);
+                    for (int i = links.size() - 1; i >= 0; i--) {
+                        rebuilt = switch (links.get(i)) {
+                            case TypedExpression.Let let ->
+                                    new TypedExpression.Let(let.type(), let.bind(), let.value(), rebuilt);
+                            case TypedExpression.Seq seq -> new TypedExpression.Seq(seq.type(), seq.left(), rebuilt);
+                            default -> throw new IllegalStateException();
+                        };
+                    }
+                    return rebuilt;
+                }
+            }
+        }
+    }
+
+    private Type type(Type type) {
+        var done = resolved.get(type);
+        if (done != null) {
+            return done;
+        }
+        var result = switch (type) {
+            case Type.Hole(HoleRef ref) -> switch (ref.get()) {
+                case Hole.Bound(Type bound) -> type(bound);
+                case Hole.Unbound unbound ->
+                        variables.computeIfAbsent(unbound.id(), (id) -> new Type.Hole(new HoleRef(unbound)));
+            };
+            case Type.Fun fun -> Type.Fun.resolved(fun.params().stream().map(this::type).toList(), type(fun.ret()));
+            case Type.Mutable(Type inner) -> new Type.Mutable(type(inner));
+            case Type.Int ignored -> type;
+            case Type.Bool ignored -> type;
+            case Type.TString ignored -> type;
+            case Type.Counter ignored -> type;
+            case Type.TVoid ignored -> type;
+        };
+        result = interned.computeIfAbsent(result, (r) -> r);
+        resolved.put(type, result);
+        return result;
+    }
+}
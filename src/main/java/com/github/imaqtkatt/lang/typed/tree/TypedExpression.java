@@ -1,5 +1,6 @@
 package com.github.imaqtkatt.lang.typed.tree;
 
+import choco.lang.Ordering;
 import com.github.imaqtkatt.lang.parser.Scope;
 import com.github.imaqtkatt.lang.tree.Operation;
 import com.github.imaqtkatt.lang.typed.Type;
@@ -30,16 +31,39 @@ public sealed interface TypedExpression {
     record Seq(Type type, TypedExpression left, TypedExpression right) implements TypedExpression {
     }
 
-    record Mutable(Type type, TypedExpression base) implements TypedExpression {
+    record Mutable(Type type, TypedExpression base, Ordering ordering) implements TypedExpression {
     }
 
     record Deref(Type type, TypedExpression mutable) implements TypedExpression {
     }
 
+    record FetchAdd(Type type, TypedExpression mutable, TypedExpression delta) implements TypedExpression {
+    }
+
+    record CompareAndSet(Type type, TypedExpression mutable, TypedExpression expected,
+                         TypedExpression replacement) implements TypedExpression {
+    }
+
+    record Counter(Type type) implements TypedExpression {
+    }
+
+    record Increment(Type type, TypedExpression counter, TypedExpression delta) implements TypedExpression {
+    }
+
+    record Sum(Type type, TypedExpression counter) implements TypedExpression {
+    }
+
     record If(Type type, TypedExpression condition, TypedExpression then,
               TypedExpression otherwise) implements TypedExpression {
     }
 
+    record Match(Type type, TypedExpression scrutinee, List<Case> cases,
+                 TypedExpression otherwise) implements TypedExpression {
+    }
+
+    record Case(int value, TypedExpression body) {
+    }
+
     record Lambda(Type type, List<String> parameters, TypedExpression body) implements TypedExpression {
     }
 }
@@ -0,0 +1,226 @@
+package com.github.imaqtkatt.lang.util;
+
+import java.util.Arrays;
+
+/**
+ * An immutable hash map where {@link #put} and {@link #remove} return a new map sharing all but one path
+ * with the old one, a hash array mapped trie. Both, as well as {@link #get}, take a handful of steps no
+ * matter the size of the map, so keeping the map of every scope around costs little more than the names
+ * it adds.
+ * <p>
+ * Each level of the trie indexes five bits of the hash into a branch that only allocates the slots in use.
+ * Keys whose hashes are equal in all bits share a collision node. Keys and values must not be {@code null}.
+ */
+public final class PersistentMap<K, V> {
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(new Branch(0, new Slot[0]));
+
+    private final Branch root;
+
+    private PersistentMap(Branch root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * The value of {@code key}, {@code null} when there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        var leaf = find(key);
+        return leaf == null ? null : (V) leaf.value();
+    }
+
+    public boolean containsKey(K key) {
+        return find(key) != null;
+    }
+
+    public PersistentMap<K, V> put(K key, V value) {
+        var updated = put(root, new Leaf(hash(key), key, value), 0);
+        return updated == root ? this : new PersistentMap<>((Branch) updated);
+    }
+
+    public PersistentMap<K, V> remove(K key) {
+        var updated = remove(root, hash(key), key, 0);
+        return switch (updated) {
+            case null -> empty();
+            case Branch branch -> branch == root ? this : new PersistentMap<>(branch);
+            // the root is always a branch, even when only one entry is left
+            case Leaf leaf -> new PersistentMap<>(new Branch(bit(leaf.hash(), 0), new Slot[]{leaf}));
+            case Collision collision -> new PersistentMap<>(new Branch(bit(collision.hash(), 0), new Slot[]{collision}));
+        };
+    }
+
+    private Leaf find(K key) {
+        var hash = hash(key);
+        Slot slot = root;
+        var shift = 0;
+        while (true) {
+            switch (slot) {
+                case Branch branch -> {
+                    var bit = bit(hash, shift);
+                    if ((branch.bitmap() & bit) == 0) {
+                        return null;
+                    }
+                    slot = branch.slots()[branch.index(bit)];
+                    shift += 5;
+                }
+                case Leaf leaf -> {
+                    return leaf.hash() == hash && leaf.key().equals(key) ? leaf : null;
+                }
+                case Collision collision -> {
+                    for (var leaf : collision.leaves()) {
+                        if (leaf.key().equals(key)) {
+                            return leaf;
+                        }
+                    }
+                    return null;
+                }
+            }
+        }
+    }
+
+    private static Slot put(Slot slot, Leaf leaf, int shift) {
+        return switch (slot) {
+            case Branch branch -> {
+                var bit = bit(leaf.hash(), shift);
+                var index = branch.index(bit);
+                if ((branch.bitmap() & bit) == 0) {
+                    var slots = new Slot[branch.slots().length + 1];
+                    System.arraycopy(branch.slots(), 0, slots, 0, index);
+                    slots[index] = leaf;
+                    System.arraycopy(branch.slots(), index, slots, index + 1, branch.slots().length - index);
+                    yield new Branch(branch.bitmap() | bit, slots);
+                }
+                var child = branch.slots()[index];
+                var updated = put(child, leaf, shift + 5);
+                yield updated == child ? branch : branch.with(index, updated);
+            }
+            case Leaf existing -> {
+                if (existing.hash() == leaf.hash() && existing.key().equals(leaf.key())) {
+                    yield existing.value() == leaf.value() ? existing : leaf;
+                }
+                yield merge(existing, existing.hash(), leaf, shift);
+            }
+            case Collision collision -> {
+                if (collision.hash() != leaf.hash()) {
+                    yield merge(collision, collision.hash(), leaf, shift);
+                }
+                var leaves = collision.leaves();
+                for (int i = 0; i < leaves.length; i++) {
+                    if (leaves[i].key().equals(leaf.key())) {
+                        if (leaves[i].value() == leaf.value()) {
+                            yield collision;
+                        }
+                        var copy = leaves.clone();
+                        copy[i] = leaf;
+                        yield new Collision(collision.hash(), copy);
+                    }
+                }
+                var copy = Arrays.copyOf(leaves, leaves.length + 1);
+                copy[leaves.length] = leaf;
+                yield new Collision(collision.hash(), copy);
+            }
+        };
+    }
+
+    /**
+     * The node holding both {@code slot}, a leaf or a collision, and a leaf for another key, at the level of
+     * {@code shift}.
+     */
+    private static Slot merge(Slot slot, int hash, Leaf leaf, int shift) {
+        if (hash == leaf.hash()) {
+            return new Collision(hash, new Leaf[]{(Leaf) slot, leaf});
+        }
+        var a = bit(hash, shift);
+        var b = bit(leaf.hash(), shift);
+        if (a == b) {
+            return new Branch(a, new Slot[]{merge(slot, hash, leaf, shift + 5)});
+        }
+        return new Branch(a | b, Integer.compareUnsigned(a, b) < 0 ? new Slot[]{slot, leaf} : new Slot[]{leaf, slot});
+    }
+
+    /**
+     * The slot without {@code key}, {@code null} when nothing is left. A branch left with a single leaf or
+     * collision is replaced by it, since its place in the parent already tells its hash apart.
+     */
+    private static Slot remove(Slot slot, int hash, Object key, int shift) {
+        return switch (slot) {
+            case Branch branch -> {
+                var bit = bit(hash, shift);
+                if ((branch.bitmap() & bit) == 0) {
+                    yield branch;
+                }
+                var index = branch.index(bit);
+                var child = branch.slots()[index];
+                var updated = remove(child, hash, key, shift + 5);
+                if (updated == child) {
+                    yield branch;
+                }
+                if (updated == null) {
+                    if (branch.slots().length == 1) {
+                        yield null;
+                    }
+                    var slots = new Slot[branch.slots().length - 1];
+                    System.arraycopy(branch.slots(), 0, slots, 0, index);
+                    System.arraycopy(branch.slots(), index + 1, slots, index, slots.length - index);
+                    var smaller = new Branch(branch.bitmap() & ~bit, slots);
+                    yield slots.length == 1 && !(slots[0] instanceof Branch) ? slots[0] : smaller;
+                }
+                yield branch.slots().length == 1 && !(updated instanceof Branch) ? updated : branch.with(index, updated);
+            }
+            case Leaf leaf -> leaf.hash() == hash && leaf.key().equals(key) ? null : leaf;
+            case Collision collision -> {
+                if (collision.hash() != hash) {
+                    yield collision;
+                }
+                var leaves = collision.leaves();
+                for (int i = 0; i < leaves.length; i++) {
+                    if (leaves[i].key().equals(key)) {
+                        if (leaves.length == 2) {
+                            yield leaves[1 - i];
+                        }
+                        var copy = new Leaf[leaves.length - 1];
+                        System.arraycopy(leaves, 0, copy, 0, i);
+                        System.arraycopy(leaves, i + 1, copy, i, copy.length - i);
+                        yield new Collision(hash, copy);
+                    }
+                }
+                yield collision;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        var hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    private sealed interface Slot {
+    }
+
+    private record Leaf(int hash, Object key, Object value) implements Slot {
+    }
+
+    private record Collision(int hash, Leaf[] leaves) implements Slot {
+    }
+
+    private record Branch(int bitmap, Slot[] slots) implements Slot {
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Branch with(int index, Slot slot) {
+            var copy = slots.clone();
+            copy[index] = slot;
+            return new Branch(bitmap, copy);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.imaqtkatt.lang;
+
+import com.github.imaqtkatt.lang.compiler.Compiler;
+import com.github.imaqtkatt.lang.lexer.Lexer;
+import com.github.imaqtkatt.lang.optimizer.Optimizer;
+import com.github.imaqtkatt.lang.parser.Parser;
+import com.github.imaqtkatt.lang.typed.infer.InferProgram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiles the same programs many times at once and checks every compilation produces the classes a
+ * sequential one does, byte for byte. Compilations share no state, so running them side by side must not
+ * change hole numbering, specializations or anything else that ends up in the class files.
+ */
+class ConcurrentCompilationTest {
+    private static final int THREADS = 16;
+    private static final int COMPILATIONS = 400;
+
+    private static final Map<String, String> PROGRAMS = Map.of(
+            "generics.choco", """
+                    package generics
+
+                    val ident = ->(x) { x }
+                    fun useA() = ident(3) + 1
+                    fun useB() = ident(4) * 2
+                    val cell = mutable 0
+                    fun bump(n) = cell <- deref cell + n
+                    fun id(x) = x
+                    fun poly() = if id(true) then id(7) else 0
+                    fun mk() = ->(x) { x }
+                    fun viaGeneric() = let f = mk() in f(3)
+                    fun t() = useA() + useB() + poly() + viaGeneric()
+                    """,
+            "lambdas.choco", """
+                    package lambdas
+
+                    fun lambda(x) = x
+                    fun use(n) = lambda(n) + (->(y) { y + 1 })(n)
+                    fun shadow(x) = let a = 1 in (->(b) { b + a })(x) + a
+                    fun seqm() =
+                      let m = mutable 1 in
+                      m <- 5;
+                      deref m
+                    fun t() = use(4) + shadow(2) + seqm()
+                    """,
+            "control.choco", """
+                    package control
+
+                    val hits = counter
+                    fun hit(n) = increment(hits, n)
+                    fun fact(n) = if n <= 1 then 1 else n * fact(n - 1)
+                    fun pick(n) = match n { case 0 -> 10 case 1 -> 20 case 2 -> 30 else -> 0 }
+                    fun chain(x) = if x == 1 then 5 else if x == 2 then 6 else if x == 3 then 7 else 8
+                    fun va(x, y) = (x < 3) and (y > 2)
+                    fun t() = fact(5) + pick(2) + chain(3) + (if va(1, 4) then 1 else 0)
+                    """
+    );
+
+    @Test
+    void concurrentCompilationsMatchSequentialOnes(@TempDir Path directory) throws Exception {
+        var files = new ArrayList<File>();
+        for (var program : PROGRAMS.entrySet()) {
+            var file = directory.resolve(program.getKey());
+            Files.writeString(file, program.getValue());
+            files.add(file.toFile());
+        }
+        try (var example = ConcurrentCompilationTest.class.getResourceAsStream("/example.choco")) {
+            var file = directory.resolve("example.choco");
+            Files.copy(Objects.requireNonNull(example, "example.choco is not on the classpath"), file);
+            files.add(file.toFile());
+        }
+
+        var expected = new LinkedHashMap<File, Map<String, byte[]>>();
+        for (var file : files) {
+            expected.put(file, compile(file));
+        }
+
+        var pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            var results = new ArrayList<Future<Map<String, byte[]>>>();
+            for (int i = 0; i < COMPILATIONS; i++) {
+                var file = files.get(i % files.size());
+                results.add(pool.submit(() -> compile(file)));
+            }
+            for (int i = 0; i < COMPILATIONS; i++) {
+                assertSameClasses(expected.get(files.get(i % files.size())), results.get(i).get());
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    private static Map<String, byte[]> compile(File file) throws Exception {
+        var program = new Parser(Lexer.fromFile(file)).program();
+        var optimized = new Optimizer().optimize(InferProgram.inferProgram(program));
+        return new Compiler(optimized).compile();
+    }
+
+    private static void assertSameClasses(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(actual.keySet()));
+        for (var entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+        }
+    }
+}
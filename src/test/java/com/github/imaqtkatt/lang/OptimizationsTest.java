@@ -0,0 +1,77 @@
+package com.github.imaqtkatt.lang;
+
+import com.github.imaqtkatt.lang.compiler.Compiler;
+import com.github.imaqtkatt.lang.lexer.Lexer;
+import com.github.imaqtkatt.lang.optimizer.Optimizer;
+import com.github.imaqtkatt.lang.parser.Parser;
+import com.github.imaqtkatt.lang.typed.infer.InferProgram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks what the optimizer leaves of a few functions by looking at the instructions they compile to.
+ */
+class OptimizationsTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void boolChainEndingInComparisonIsOneSwitch() throws Exception {
+        var method = compile("""
+                fun isZeroOrOne(n) =
+                  if n == 0 then
+                    true
+                  else if n == 1 then
+                    true
+                  else
+                    false
+                """, "isZeroOrOne");
+        assertTrue(contains(method, Opcodes.TABLESWITCH));
+        assertFalse(contains(method, Opcodes.IF_ICMPNE) || contains(method, Opcodes.IF_ICMPEQ));
+    }
+
+    @Test
+    void multiplicationsByLiteralsFoldIntoOne() throws Exception {
+        for (var body : new String[]{"x * 2 * 3", "x * 3 * 2"}) {
+            var method = compile("fun m(x) = " + body + "\n", "m");
+            assertFalse(contains(method, Opcodes.IADD), body);
+            assertEquals(1, count(method, Opcodes.IMUL), body);
+            assertTrue(Arrays.stream(method.instructions.toArray())
+                    .anyMatch((instruction) -> instruction instanceof LdcInsnNode ldc && ldc.cst.equals(6)), body);
+        }
+    }
+
+    private MethodNode compile(String functions, String name) throws Exception {
+        var file = directory.resolve("test.choco");
+        Files.writeString(file, "package test\n\n" + functions);
+        var program = new Parser(Lexer.fromFile(file.toFile())).program();
+        var optimized = new Optimizer().optimize(InferProgram.inferProgram(program));
+        var classNode = new ClassNode();
+        new ClassReader(new Compiler(optimized).compile().get("test/Main")).accept(classNode, 0);
+        return classNode.methods.stream()
+                .filter((method) -> method.name.equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static boolean contains(MethodNode method, int opcode) {
+        return count(method, opcode) > 0;
+    }
+
+    private static long count(MethodNode method, int opcode) {
+        return Arrays.stream(method.instructions.toArray()).filter((instruction) -> instruction.getOpcode() == opcode).count();
+    }
+}